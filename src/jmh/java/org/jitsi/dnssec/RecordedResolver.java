@@ -0,0 +1,110 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.Type;
+
+/**
+ * Head resolver that answers from one of the recordings of the unit tests instead of the network.
+ * The responses are returned as recorded, without copying them, so that a benchmark measures the
+ * validation and not the replay.
+ */
+public class RecordedResolver extends SimpleResolver {
+  private static final DateTimeFormatter DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX");
+
+  private final Map<String, Message> responses = new HashMap<>();
+  private final Instant date;
+  private final Message first;
+
+  /**
+   * Loads a recording.
+   *
+   * @param recording The name of the recording below <code>/recordings/</code>, e.g. <code>
+   *     org_jitsi_dnssec_TestPositive/testValidExising</code>.
+   * @throws IOException if the recording does not exist or cannot be parsed.
+   */
+  public RecordedResolver(String recording) throws IOException {
+    super("127.0.0.1");
+    InputStream stream = RecordedResolver.class.getResourceAsStream("/recordings/" + recording);
+    if (stream == null) {
+      throw new IOException("Recording " + recording + " not found");
+    }
+
+    try (BufferedReader r =
+        new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      this.date =
+          ZonedDateTime.parse(r.readLine().substring("#Date: ".length()), DATE_FORMAT).toInstant();
+      MessageReader reader = new MessageReader();
+      Message m;
+      Message firstMessage = null;
+      while ((m = reader.readMessage(r)) != null) {
+        if (firstMessage == null) {
+          firstMessage = m;
+        }
+
+        this.responses.put(key(m.getQuestion()), m);
+      }
+
+      this.first = firstMessage;
+    }
+  }
+
+  /**
+   * Gets the time at which the recording was made.
+   *
+   * @return The time of the recording, validation must use this as the current time.
+   */
+  public Instant getDate() {
+    return this.date;
+  }
+
+  /**
+   * Gets the first response of the recording, i.e. the response to the query of the unit test.
+   *
+   * @return The first recorded response.
+   */
+  public Message getFirstResponse() {
+    return this.first;
+  }
+
+  @Override
+  public CompletionStage<Message> sendAsync(Message query) {
+    Message response = this.responses.get(key(query.getQuestion()));
+    if (response == null) {
+      CompletableFuture<Message> f = new CompletableFuture<>();
+      f.completeExceptionally(
+          new IOException("No recorded response for " + key(query.getQuestion())));
+      return f;
+    }
+
+    return CompletableFuture.completedFuture(response);
+  }
+
+  private static String key(Record r) {
+    return r.getName() + "/" + Type.string(r.getType());
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.Message;
+
+/** Converts recorded responses to and from {@link SMessage}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class SMessageBenchmark {
+  @Param({
+    "org_jitsi_dnssec_TestPositive/testValidExising",
+    "org_jitsi_dnssec_TestNonExistence/testSingleLabelABelowSignedNsec3"
+  })
+  public String recording;
+
+  private Message message;
+  private SMessage smessage;
+
+  @Setup
+  public void setup() throws IOException {
+    this.message = new RecordedResolver(this.recording).getFirstResponse();
+    this.smessage = new SMessage(this.message);
+  }
+
+  @Benchmark
+  public SMessage construct() {
+    return new SMessage(this.message);
+  }
+
+  @Benchmark
+  public Message getMessage() {
+    return this.smessage.getMessage();
+  }
+}
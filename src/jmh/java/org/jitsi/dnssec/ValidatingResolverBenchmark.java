@@ -0,0 +1,101 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import java.io.IOException;
+import java.security.Security;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+
+/**
+ * Validates the query of a unit test recording end to end through {@link
+ * ValidatingResolver#sendAsync}. With <code>cold</code> caches, every query builds the chain of
+ * trust from the root again; with <code>warm</code> caches, the keys and signatures of earlier
+ * queries are reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ValidatingResolverBenchmark {
+  @Param({
+    "org_jitsi_dnssec_TestPositive/testValidExising",
+    "org_jitsi_dnssec_TestNonExistence/testSingleLabelABelowSigned",
+    "org_jitsi_dnssec_TestNonExistence/testSingleLabelABelowSignedNsec3",
+    "org_jitsi_dnssec_TestNSEC3NoData/testNodataApexNsec3WithSOAValid",
+    "org_jitsi_dnssec_TestWildcard/testSynthesisUsesCorrectWildcard",
+    "org_jitsi_dnssec_validator_TestNsec3ValUtils/testNsecEcdsa256",
+    "org_jitsi_dnssec_validator_TestAlgorithmSupport/testEd25519"
+  })
+  public String recording;
+
+  @Param({"warm", "cold"})
+  public String caches;
+
+  private RecordedResolver head;
+  private ValidatingResolver resolver;
+  private Message query;
+
+  @Setup
+  public void setup() throws IOException {
+    // Ed25519 keys need a provider on Java 8
+    if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    this.head = new RecordedResolver(this.recording);
+    this.query = Message.newQuery(this.head.getFirstResponse().getQuestion());
+    this.resolver = this.newResolver();
+    Message response = this.sendAsync();
+    if (!response.getHeader().getFlag(Flags.AD)) {
+      throw new IllegalStateException("Recording " + this.recording + " does not validate");
+    }
+  }
+
+  /** Replaces the resolver, and with it all its caches, before every cold query. */
+  @Setup(Level.Invocation)
+  public void reset() throws IOException {
+    if ("cold".equals(this.caches)) {
+      this.resolver = this.newResolver();
+    }
+  }
+
+  private ValidatingResolver newResolver() throws IOException {
+    ValidatingResolver r =
+        new ValidatingResolver(this.head, Clock.fixed(this.head.getDate(), ZoneOffset.UTC));
+    r.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
+    return r;
+  }
+
+  @Benchmark
+  public Message sendAsync() {
+    return this.resolver.sendAsync(this.query).toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.net.InetAddress;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRset;
+
+/**
+ * Verifies the signature of an A RRset with {@link DnsSecVerifier#verify(SRRset, RRset,
+ * java.time.Instant)}, with and without the cache of successful verifications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DnsSecVerifierBenchmark {
+  @Param({"RSASHA256", "RSASHA512", "ECDSAP256SHA256", "ECDSAP384SHA384"})
+  public String algorithm;
+
+  @Param({"0", "1000"})
+  public String cacheSize;
+
+  private DnsSecVerifier verifier;
+  private RRset keys;
+  private SRRset rrset;
+
+  @Setup
+  public void setup() throws Exception {
+    SigningKey key = new SigningKey(this.algorithm, 256);
+    this.keys = new RRset(key.dnskey);
+    this.rrset =
+        key.sign(
+            new RRset(
+                new ARecord(
+                    new Name("www", SigningKey.ZONE),
+                    DClass.IN,
+                    3600,
+                    InetAddress.getByName("192.0.2.1"))));
+
+    Properties config = new Properties();
+    config.put(DnsSecVerifier.CACHE_SIZE_CONFIG, this.cacheSize);
+    this.verifier = new DnsSecVerifier();
+    this.verifier.init(config);
+    if (this.verify() != SecurityStatus.SECURE) {
+      throw new IllegalStateException(this.algorithm + " signature does not verify");
+    }
+  }
+
+  @Benchmark
+  public SecurityStatus verify() {
+    return this.verifier.verify(this.rrset, this.keys, SigningKey.NOW);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.Name;
+
+/**
+ * Looks up the closest DNSKEY RRset of a name with {@link KeyCache#find}. The names are two labels
+ * below the cached zones, so every lookup also misses once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@Threads(4)
+public class KeyCacheBenchmark {
+  @Param({"InMemoryKeyCache", "OffHeapKeyCache"})
+  public String implementation;
+
+  @Param({"100", "10000"})
+  public int zones;
+
+  private KeyCache cache;
+  private Name[] names;
+
+  @Setup
+  public void setup() throws Exception {
+    this.cache =
+        "OffHeapKeyCache".equals(this.implementation)
+            ? new OffHeapKeyCache()
+            : new InMemoryKeyCache();
+    Properties config = new Properties();
+    config.put(KeyCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(this.zones));
+    config.put(KeyCache.MAX_TTL_CONFIG, Integer.toString(Integer.MAX_VALUE));
+    this.cache.init(config);
+
+    DNSKEYRecord key = new SigningKey("RSASHA256", 257).dnskey;
+    this.names = new Name[this.zones];
+    for (int i = 0; i < this.zones; i++) {
+      Name zone = new Name("zone" + i, SigningKey.ZONE);
+      SRRset keys =
+          new SRRset(
+              new DNSKEYRecord(
+                  zone,
+                  DClass.IN,
+                  3600,
+                  key.getFlags(),
+                  key.getProtocol(),
+                  key.getAlgorithm(),
+                  key.getKey()));
+      keys.setSecurityStatus(SecurityStatus.SECURE);
+      this.cache.store(KeyEntry.newKeyEntry(keys));
+      this.names[i] = new Name("www", zone);
+    }
+  }
+
+  /** Per thread position in the names. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Benchmark
+  public KeyEntry find(Cursor cursor) {
+    Name name = this.names[cursor.next++ % this.names.length];
+    KeyEntry ke = this.cache.find(name, DClass.IN);
+    if (ke == null) {
+      throw new IllegalStateException("No key for " + name);
+    }
+
+    return ke;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Type;
+import org.xbill.DNS.utils.base32;
+
+/**
+ * Proves the non-existence of a name with {@link NSEC3ValUtils#proveNameError} from an unsigned,
+ * generated NSEC3 chain. Signatures are not part of the proof, so only the hashing and the lookups
+ * in the chain are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class NSEC3ValUtilsBenchmark {
+  private static final byte[] SALT = {(byte) 0xab, (byte) 0xcd};
+
+  @Param({"0", "10", "100"})
+  public int iterations;
+
+  /** Number of NSEC3 records in the response; a real response has at most three. */
+  @Param({"3", "100"})
+  public int records;
+
+  @Param({"0", "10000"})
+  public String hashCacheSize;
+
+  private NSEC3ValUtils n3valUtils;
+  private NSEC3Record parameters;
+  private List<SRRset> nsec3s;
+  private Name qname;
+
+  @Setup
+  public void setup() throws Exception {
+    Properties config = new Properties();
+    config.put(NSEC3HashCache.MAX_CACHE_SIZE_CONFIG, this.hashCacheSize);
+    this.n3valUtils = new NSEC3ValUtils();
+    this.n3valUtils.init(config);
+    this.qname = new Name("gibtsnicht", SigningKey.ZONE);
+    this.parameters =
+        new NSEC3Record(
+            SigningKey.ZONE,
+            DClass.IN,
+            300,
+            NSEC3Record.SHA1_DIGEST_ID,
+            0,
+            this.iterations,
+            SALT,
+            new byte[20],
+            new int[0]);
+
+    // the zone consists of the apex and hosts, the hashes sorted form the chain
+    List<byte[]> hashes = new ArrayList<>();
+    hashes.add(hash(SigningKey.ZONE));
+    for (int i = 0; hashes.size() < Math.max(this.records, 3) * 10; i++) {
+      hashes.add(hash(new Name("host" + i, SigningKey.ZONE)));
+    }
+
+    hashes.sort(new ByteArrayComparator());
+    List<SRRset> chain = new ArrayList<>();
+    base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+    for (int i = 0; i < hashes.size(); i++) {
+      chain.add(
+          new SRRset(
+              new NSEC3Record(
+                  new Name(b32.toString(hashes.get(i)), SigningKey.ZONE),
+                  DClass.IN,
+                  300,
+                  NSEC3Record.SHA1_DIGEST_ID,
+                  0,
+                  this.iterations,
+                  SALT,
+                  hashes.get((i + 1) % hashes.size()),
+                  new int[] {Type.A})));
+    }
+
+    // the proof needs the matching record of the apex and the records covering qname and the
+    // wildcard, fill up the response with other records of the chain
+    List<SRRset> proof = new ArrayList<>();
+    for (Name n : Arrays.asList(SigningKey.ZONE, this.qname, new Name("*", SigningKey.ZONE))) {
+      proof.add(find(chain, hash(n)));
+    }
+
+    this.nsec3s = new ArrayList<>();
+    for (SRRset set : chain) {
+      if (this.nsec3s.size() + proof.size() >= this.records) {
+        break;
+      }
+
+      if (!proof.contains(set)) {
+        this.nsec3s.add(set);
+      }
+    }
+
+    this.nsec3s.addAll(proof);
+    if (this.proveNameError() != SecurityStatus.SECURE) {
+      throw new IllegalStateException("The generated chain does not prove the name error");
+    }
+  }
+
+  private byte[] hash(Name name) throws Exception {
+    return this.parameters.hashName(name);
+  }
+
+  /** Finds the record of the chain that matches or covers a hash. */
+  private static SRRset find(List<SRRset> chain, byte[] hash) {
+    ByteArrayComparator bac = new ByteArrayComparator();
+    base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+    SRRset result = chain.get(chain.size() - 1);
+    for (SRRset set : chain) {
+      if (bac.compare(b32.fromString(set.getName().getLabelString(0)), hash) <= 0) {
+        result = set;
+      }
+    }
+
+    return result;
+  }
+
+  @Benchmark
+  public SecurityStatus proveNameError() {
+    return this.n3valUtils.proveNameError(this.nsec3s, this.qname, SigningKey.ZONE);
+  }
+}
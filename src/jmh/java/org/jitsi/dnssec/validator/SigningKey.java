@@ -0,0 +1,81 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import org.jitsi.dnssec.SRRset;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC;
+import org.xbill.DNS.DNSSEC.Algorithm;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRset;
+
+/** A generated DNSSEC key pair for the benchmarks that sign their own data. */
+final class SigningKey {
+  static final Name ZONE = Name.fromConstantString("example.com.");
+  static final Instant INCEPTION = Instant.parse("2020-01-01T00:00:00Z");
+  static final Instant EXPIRATION = Instant.parse("2020-02-01T00:00:00Z");
+  static final Instant NOW = Instant.parse("2020-01-15T00:00:00Z");
+
+  final DNSKEYRecord dnskey;
+  private final PrivateKey privateKey;
+
+  /**
+   * Generates a key.
+   *
+   * @param algorithm The mnemonic of the DNSSEC algorithm, e.g. <code>RSASHA256</code>.
+   * @param flags The DNSKEY flags, e.g. 257 for a key signing key.
+   */
+  SigningKey(String algorithm, int flags) throws GeneralSecurityException, DNSSEC.DNSSECException {
+    int alg = Algorithm.value(algorithm);
+    KeyPairGenerator generator;
+    switch (alg) {
+      case Algorithm.RSASHA1:
+      case Algorithm.RSASHA256:
+      case Algorithm.RSASHA512:
+        generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        break;
+      case Algorithm.ECDSAP256SHA256:
+        generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        break;
+      case Algorithm.ECDSAP384SHA384:
+        generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp384r1"));
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+    }
+
+    KeyPair pair = generator.generateKeyPair();
+    this.privateKey = pair.getPrivate();
+    this.dnskey = new DNSKEYRecord(ZONE, DClass.IN, 3600, flags, 3, alg, pair.getPublic());
+  }
+
+  /**
+   * Creates a signed copy of an RRset.
+   *
+   * @param rrset The RRset to sign.
+   * @return The RRset with the records and a signature by this key.
+   */
+  SRRset sign(RRset rrset) throws DNSSEC.DNSSECException {
+    SRRset signed = new SRRset(rrset);
+    signed.addRR(DNSSEC.sign(rrset, this.dnskey, this.privateKey, INCEPTION, EXPIRATION));
+    return signed;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.jitsi.dnssec.SRRset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DSRecord;
+import org.xbill.DNS.RRset;
+
+/**
+ * Authenticates a DNSKEY RRset with a KSK and a ZSK against its DS RRset with {@link
+ * ValUtils#verifyNewDNSKEYs}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ValUtilsBenchmark {
+  @Param({"RSASHA256", "RSASHA512", "ECDSAP256SHA256", "ECDSAP384SHA384"})
+  public String algorithm;
+
+  @Param({"0", "1000"})
+  public String cacheSize;
+
+  private ValUtils valUtils;
+  private SRRset dnskeys;
+  private SRRset ds;
+
+  @Setup
+  public void setup() throws Exception {
+    SigningKey ksk = new SigningKey(this.algorithm, 257);
+    SigningKey zsk = new SigningKey(this.algorithm, 256);
+    RRset keys = new RRset(ksk.dnskey);
+    keys.addRR(zsk.dnskey);
+    this.dnskeys = ksk.sign(keys);
+    this.ds =
+        new SRRset(
+            new DSRecord(SigningKey.ZONE, DClass.IN, 3600, DSRecord.Digest.SHA256, ksk.dnskey));
+
+    Properties config = new Properties();
+    config.put(DnsSecVerifier.CACHE_SIZE_CONFIG, this.cacheSize);
+    this.valUtils = new ValUtils();
+    this.valUtils.init(config);
+    if (!this.verifyNewDNSKEYs().isGood()) {
+      throw new IllegalStateException(this.algorithm + " DNSKEY RRset does not verify");
+    }
+  }
+
+  @Benchmark
+  public KeyEntry verifyNewDNSKEYs() {
+    return this.valUtils.verifyNewDNSKEYs(this.dnskeys, this.ds, 60, SigningKey.NOW);
+  }
+}
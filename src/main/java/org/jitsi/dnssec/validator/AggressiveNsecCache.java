@@ -0,0 +1,475 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jitsi.dnssec.SMessage;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Header;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NSECRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.NameTooLongException;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+/**
+ * Aggressive use of validated NSEC and NSEC3 records (RFC 8198). The SOA and the NSEC/NSEC3 RRsets
+ * of secure NXDOMAIN and NODATA responses are kept per zone, and later queries for names that they
+ * already prove not to exist are answered without contacting the head resolver. The cache is
+ * disabled unless a maximum size is configured.
+ *
+ * <p>Only responses that can be proven from the cached records alone are synthesized: NXDOMAIN with
+ * the proof that no wildcard exists, and NODATA for an existing name or an empty non-terminal.
+ * Queries with the CD flag, for DS or for ANY records, as well as opt-out and wildcard NODATA
+ * proofs, are always sent to the head resolver.
+ */
+public final class AggressiveNsecCache {
+  /** Name of the property that configures the maximum cache TTL. */
+  public static final String MAX_TTL_CONFIG = "org.jitsi.dnssec.aggressivensec.max_ttl";
+
+  /** Name of the property that configures the maximum number of zones, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.aggressivensec.max_size";
+
+  /** Name of the property that configures the maximum number of NSEC/NSEC3 RRsets per zone. */
+  public static final String MAX_RANGES_CONFIG = "org.jitsi.dnssec.aggressivensec.max_ranges";
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 900;
+  private static final int DEFAULT_MAX_RANGES = 1000;
+  private static final Name WILDCARD = Name.fromConstantString("*");
+
+  private final ClockCache<NameClassKey, Zone> cache;
+  private final NSEC3ValUtils n3valUtils;
+
+  /** This is the maximum TTL [s] that all cached ranges will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  private int maxRanges = DEFAULT_MAX_RANGES;
+
+  /**
+   * Creates a new, disabled instance of this class.
+   *
+   * @param n3valUtils The NSEC3 utilities that check the proofs of NSEC3 signed zones.
+   */
+  AggressiveNsecCache(NSEC3ValUtils n3valUtils) {
+    this.cache = new ClockCache<>(0);
+    this.n3valUtils = n3valUtils;
+  }
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>org.jitsi.dnssec.aggressivensec.max_ttl
+   *   <dd>The maximum TTL to apply to any cached NSEC or NSEC3 RRset.
+   *   <dt>org.jitsi.dnssec.aggressivensec.max_size
+   *   <dd>The maximum number of zones that the cache will hold. The default of 0 disables the
+   *       cache.
+   *   <dt>org.jitsi.dnssec.aggressivensec.max_ranges
+   *   <dd>The maximum number of NSEC and NSEC3 RRsets that are kept per zone.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_RANGES_CONFIG);
+    if (s != null) {
+      this.maxRanges = Integer.parseInt(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Determines if the cache is enabled.
+   *
+   * @return <code>true</code> if negative responses are synthesized.
+   */
+  boolean isEnabled() {
+    return this.cache.getMaxSize() > 0;
+  }
+
+  /**
+   * Synthesizes a secure NXDOMAIN or NODATA response from the cached records.
+   *
+   * @param query The query to answer.
+   * @param now The current time.
+   * @return A response with the ID of the query, or <code>null</code> if the cached records do not
+   *     prove that the queried data does not exist.
+   */
+  Message get(Message query, Instant now) {
+    Record q = query.getQuestion();
+    if (!this.isEnabled()
+        || q == null
+        || query.getHeader().getFlag(Flags.CD)
+        || q.getType() == Type.DS
+        || q.getType() == Type.ANY) {
+      return null;
+    }
+
+    // the closest zone that has cached ranges is responsible for the name, the proofs of a parent
+    // zone do not match below a delegation
+    long nowMs = now.toEpochMilli();
+    Name qname = q.getName();
+    Name n = qname;
+    Zone zone = this.cache.get(new NameClassKey(n, q.getDClass()), nowMs);
+    while (zone == null && n.labels() > 1) {
+      n = new Name(n, 1);
+      zone = this.cache.get(new NameClassKey(n, q.getDClass()), nowMs);
+    }
+
+    if (zone == null) {
+      return null;
+    }
+
+    SRRset soa = zone.getSoa(nowMs);
+    if (soa == null) {
+      return null;
+    }
+
+    List<SRRset> proof = zone.proveNsecNameError(qname, nowMs);
+    if (proof != null) {
+      return response(query, Rcode.NXDOMAIN, soa, proof);
+    }
+
+    proof = zone.proveNsecNodata(qname, q.getType(), nowMs);
+    if (proof != null) {
+      return response(query, Rcode.NOERROR, soa, proof);
+    }
+
+    List<SRRset> nsec3s = zone.getNsec3s(nowMs);
+    if (nsec3s.isEmpty()) {
+      return null;
+    }
+
+    proof = this.relevantNsec3s(nsec3s, qname, zone.name);
+    if (this.n3valUtils.proveNameError(proof, qname, zone.name) == SecurityStatus.SECURE) {
+      return response(query, Rcode.NXDOMAIN, soa, proof);
+    }
+
+    if (this.n3valUtils.proveNodata(proof, qname, q.getType(), zone.name)
+        == SecurityStatus.SECURE) {
+      return response(query, Rcode.NOERROR, soa, proof);
+    }
+
+    return null;
+  }
+
+  /**
+   * Stores the SOA and the NSEC/NSEC3 RRsets of a validated negative response.
+   *
+   * @param response The secure NXDOMAIN or NODATA response.
+   * @param now The current time.
+   */
+  void store(SMessage response, Instant now) {
+    if (!this.isEnabled() || response.getStatus() != SecurityStatus.SECURE) {
+      return;
+    }
+
+    SRRset soa = null;
+    List<SRRset> ranges = new ArrayList<>();
+    for (SRRset set : response.getSectionRRsets(Section.AUTHORITY)) {
+      if (set.getSecurityStatus() != SecurityStatus.SECURE) {
+        continue;
+      }
+
+      switch (set.getType()) {
+        case Type.SOA:
+          soa = set;
+          break;
+        case Type.NSEC:
+        case Type.NSEC3:
+          ranges.add(set);
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (soa == null || ranges.isEmpty() || !soa.getName().equals(soa.getSignerName())) {
+      return;
+    }
+
+    // RFC 8198, 5.4: the negative TTL of the SOA also limits the lifetime of the ranges
+    long ttl =
+        Math.min(this.maxTtl, Math.min(soa.getTTL(), ((SOARecord) soa.first()).getMinimum()));
+    long nowMs = now.toEpochMilli();
+    NameClassKey key = new NameClassKey(soa.getName(), soa.getDClass());
+    Zone zone;
+    synchronized (this) {
+      zone = this.cache.get(key, nowMs);
+      if (zone == null) {
+        zone = new Zone(soa.getName());
+        this.cache.put(key, zone, Long.MAX_VALUE);
+      }
+    }
+
+    zone.setSoa(new SRRset(soa), expiration(soa, ttl, nowMs));
+    for (SRRset set : ranges) {
+      if (zone.name.equals(set.getSignerName())) {
+        zone.add(new SRRset(set), expiration(set, ttl, nowMs), this.maxRanges, nowMs);
+      }
+    }
+  }
+
+  /**
+   * Selects the NSEC3 RRsets that match or cover the query name, its ancestors up to the zone or
+   * the wildcards below them. These are all the records that a name error or nodata proof can use.
+   */
+  private List<SRRset> relevantNsec3s(List<SRRset> nsec3s, Name qname, Name zonename) {
+    Map<Record, SRRset> sets = new IdentityHashMap<>();
+    for (SRRset set : nsec3s) {
+      sets.put(set.first(), set);
+    }
+
+    NSEC3Index index = new NSEC3Index(nsec3s, zonename, this.n3valUtils.getHashCache());
+    Set<SRRset> result = new LinkedHashSet<>();
+    for (Name n = qname; n.subdomain(zonename); n = new Name(n, 1)) {
+      add(result, sets, index.findMatching(n));
+      add(result, sets, index.findCovering(n));
+      try {
+        Name wc = Name.concatenate(WILDCARD, n);
+        add(result, sets, index.findMatching(wc));
+        add(result, sets, index.findCovering(wc));
+      } catch (NameTooLongException e) {
+        // there cannot be a wildcard below this name
+      }
+
+      if (n.equals(zonename)) {
+        break;
+      }
+    }
+
+    return new ArrayList<>(result);
+  }
+
+  private static void add(Set<SRRset> result, Map<Record, SRRset> sets, Record nsec3) {
+    if (nsec3 != null) {
+      result.add(sets.get(nsec3));
+    }
+  }
+
+  /** Gets the expiration [ms] of an RRset: the TTL, but never later than any of its signatures. */
+  private static long expiration(SRRset set, long ttl, long now) {
+    long expiration = now + Math.min(ttl, set.getTTL()) * MILLISECONDS_PER_SECOND;
+    for (RRSIGRecord sig : set.sigs()) {
+      expiration = Math.min(expiration, sig.getExpire().toEpochMilli());
+    }
+
+    return expiration;
+  }
+
+  private static Message response(Message query, int rcode, SRRset soa, List<SRRset> proof) {
+    Message m = new Message(query.getHeader().getID());
+    Header h = m.getHeader();
+    h.setRcode(rcode);
+    h.setFlag(Flags.QR);
+    h.setFlag(Flags.RA);
+    h.setFlag(Flags.AD);
+    if (query.getHeader().getFlag(Flags.RD)) {
+      h.setFlag(Flags.RD);
+    }
+
+    m.addRecord(query.getQuestion(), Section.QUESTION);
+    for (SRRset set : concat(soa, proof)) {
+      for (Record r : set.rrs(false)) {
+        m.addRecord(r, Section.AUTHORITY);
+      }
+
+      for (RRSIGRecord sig : set.sigs()) {
+        m.addRecord(sig, Section.AUTHORITY);
+      }
+    }
+
+    OPTRecord opt = query.getOPT();
+    if (opt != null) {
+      m.addRecord(new OPTRecord(opt.getPayloadSize(), 0, 0, opt.getFlags()), Section.ADDITIONAL);
+    }
+
+    return m;
+  }
+
+  private static List<SRRset> concat(SRRset first, List<SRRset> rest) {
+    List<SRRset> result = new ArrayList<>(rest.size() + 1);
+    result.add(first);
+    result.addAll(rest);
+    return result;
+  }
+
+  /** An NSEC or NSEC3 RRset with the time [ms] until which it may be used. */
+  private static final class Range {
+    private final SRRset set;
+    private final long expiration;
+
+    Range(SRRset set, long expiration) {
+      this.set = set;
+      this.expiration = expiration;
+    }
+  }
+
+  /** The cached records of one zone. */
+  private static final class Zone {
+    private final Name name;
+    private SRRset soa;
+    private long soaExpiration;
+
+    /** The NSEC RRsets in canonical order of their owner names. */
+    private final TreeMap<Name, Range> nsecs = new TreeMap<>();
+
+    private final Map<Name, Range> nsec3s = new HashMap<>();
+
+    Zone(Name name) {
+      this.name = name;
+    }
+
+    synchronized void setSoa(SRRset soa, long expiration) {
+      this.soa = soa;
+      this.soaExpiration = expiration;
+    }
+
+    synchronized SRRset getSoa(long now) {
+      return this.soaExpiration > now ? this.soa : null;
+    }
+
+    synchronized void add(SRRset set, long expiration, int maxRanges, long now) {
+      if (expiration <= now || maxRanges <= 0) {
+        return;
+      }
+
+      Map<Name, Range> ranges = set.getType() == Type.NSEC ? this.nsecs : this.nsec3s;
+      ranges.put(set.getName(), new Range(set, expiration));
+      if (this.nsecs.size() + this.nsec3s.size() > maxRanges) {
+        this.evict(now);
+      }
+    }
+
+    /** Removes all expired ranges, or the one that expires first if none has expired yet. */
+    private void evict(long now) {
+      Map<Name, Range> earliestMap = null;
+      Name earliest = null;
+      long earliestExpiration = Long.MAX_VALUE;
+      boolean removed = false;
+      for (Map<Name, Range> ranges : Arrays.asList(this.nsecs, this.nsec3s)) {
+        for (Iterator<Map.Entry<Name, Range>> it = ranges.entrySet().iterator(); it.hasNext(); ) {
+          Map.Entry<Name, Range> e = it.next();
+          if (e.getValue().expiration <= now) {
+            it.remove();
+            removed = true;
+          } else if (e.getValue().expiration < earliestExpiration) {
+            earliestMap = ranges;
+            earliest = e.getKey();
+            earliestExpiration = e.getValue().expiration;
+          }
+        }
+      }
+
+      if (!removed && earliestMap != null) {
+        earliestMap.remove(earliest);
+      }
+    }
+
+    /** Gets the NSEC with the largest owner name that is not larger than a name. */
+    private SRRset floor(Name name, long now) {
+      Map.Entry<Name, Range> e = this.nsecs.floorEntry(name);
+      if (e == null) {
+        return null;
+      }
+
+      if (e.getValue().expiration <= now) {
+        this.nsecs.remove(e.getKey());
+        return null;
+      }
+
+      return e.getValue().set;
+    }
+
+    synchronized List<SRRset> proveNsecNameError(Name qname, long now) {
+      SRRset set = this.floor(qname, now);
+      if (set == null || !ValUtils.nsecProvesNameError(set, (NSECRecord) set.first(), qname)) {
+        return null;
+      }
+
+      // the wildcard at the closest encloser must not exist either
+      NSECRecord nsec = (NSECRecord) set.first();
+      Name ce = ValUtils.closestEncloser(qname, set.getName(), nsec.getNext());
+      int labelsToStrip = qname.labels() - ce.labels();
+      if (labelsToStrip <= 0) {
+        return null;
+      }
+
+      Name wc = qname.wild(labelsToStrip);
+      SRRset wcSet = this.floor(wc, now);
+      if (wcSet == null || !ValUtils.nsecProvesNameError(wcSet, (NSECRecord) wcSet.first(), wc)) {
+        return null;
+      }
+
+      return wcSet == set ? Collections.singletonList(set) : Arrays.asList(set, wcSet);
+    }
+
+    synchronized List<SRRset> proveNsecNodata(Name qname, int qtype, long now) {
+      SRRset set = this.floor(qname, now);
+      if (set == null) {
+        return null;
+      }
+
+      ValUtils.NsecProvesNodataResponse ndp =
+          ValUtils.nsecProvesNodata(set, (NSECRecord) set.first(), qname, qtype);
+      if (!ndp.result || ndp.wc != null || set.getName().isWild()) {
+        return null;
+      }
+
+      return Collections.singletonList(set);
+    }
+
+    synchronized List<SRRset> getNsec3s(long now) {
+      List<SRRset> result = new ArrayList<>(this.nsec3s.size());
+      for (Iterator<Range> it = this.nsec3s.values().iterator(); it.hasNext(); ) {
+        Range r = it.next();
+        if (r.expiration <= now) {
+          it.remove();
+        } else {
+          result.add(r.set);
+        }
+      }
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.xbill.DNS.DNSInput;
+import org.xbill.DNS.DNSOutput;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.WireParseException;
+
+/**
+ * The DS, DNSKEY and RRSIG records that authenticate the keys of a response, from the trust anchor
+ * down to the signers of the response, in the style of the DNSSEC chain of <a
+ * href="https://tools.ietf.org/html/rfc9102">RFC 9102</a>. Proofs that a name is not a zone cut or
+ * that a zone is unsigned (NSEC/NSEC3 and SOA records with their RRSIGs) are part of the chain as
+ * well. The trust anchors themselves are not included, the receiver of a chain must have its own.
+ *
+ * @see ValidatingResolver#getAuthenticationChain(org.xbill.DNS.Message)
+ * @see ValidatingResolver#validateWithChainAsync(org.xbill.DNS.Message, org.xbill.DNS.Message,
+ *     AuthenticationChain)
+ */
+public final class AuthenticationChain {
+  private final List<Record> records;
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param records The records of the chain.
+   */
+  public AuthenticationChain(List<Record> records) {
+    this.records = Collections.unmodifiableList(new ArrayList<>(records));
+  }
+
+  /**
+   * Gets the records of the chain.
+   *
+   * @return The records, from the trust anchor downwards.
+   */
+  public List<Record> getRecords() {
+    return this.records;
+  }
+
+  /**
+   * Converts the chain to the wire format of RFC 9102, i.e. the uncompressed records one after
+   * another.
+   *
+   * @return The chain in wire format.
+   */
+  public byte[] toWire() {
+    DNSOutput out = new DNSOutput();
+    for (Record r : this.records) {
+      out.writeByteArray(r.toWire(Section.ANSWER));
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads a chain from its wire format.
+   *
+   * @param wire The records of the chain, uncompressed and one after another.
+   * @return The parsed chain.
+   * @throws WireParseException if the data does not contain valid records.
+   */
+  public static AuthenticationChain fromWire(byte[] wire) throws WireParseException {
+    DNSInput in = new DNSInput(wire);
+    List<Record> records = new ArrayList<>();
+    while (in.remaining() > 0) {
+      Name name = new Name(in);
+      int type = in.readU16();
+      int dclass = in.readU16();
+      long ttl = in.readU32();
+      int length = in.readU16();
+      records.add(Record.newRecord(name, type, dclass, ttl, length, in.readByteArray(length)));
+    }
+
+    return new AuthenticationChain(records);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.xbill.DNS.EDNSOption;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TSIG;
+import org.xbill.DNS.Type;
+
+/**
+ * Head resolver that answers the DS and DNSKEY queries of the key finding phase from an {@link
+ * AuthenticationChain}, without any network I/O. A DS query for a name without DS records in the
+ * chain is answered with the NSEC/NSEC3 and SOA records of the closest enclosing zone, which prove
+ * that there is no DS. All other queries fail.
+ */
+final class AuthenticationChainResolver implements Resolver {
+  /** The records of the chain by owner name and (covered) type, RRSIGs after the data. */
+  private final Map<String, List<Record>> rrsets = new HashMap<>();
+
+  /** The NSEC, NSEC3 and SOA records of the chain with their RRSIGs, by signer. */
+  private final Map<Name, List<Record>> denials = new HashMap<>();
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param chain The chain from which the queries are answered.
+   */
+  AuthenticationChainResolver(AuthenticationChain chain) {
+    List<Record> sigs = new ArrayList<>();
+    for (Record r : chain.getRecords()) {
+      if (r.getType() == Type.RRSIG) {
+        sigs.add(r);
+      } else {
+        this.rrsets.computeIfAbsent(key(r.getName(), r.getType()), k -> new ArrayList<>()).add(r);
+      }
+    }
+
+    for (Record r : sigs) {
+      RRSIGRecord sig = (RRSIGRecord) r;
+      this.rrsets
+          .computeIfAbsent(key(sig.getName(), sig.getTypeCovered()), k -> new ArrayList<>())
+          .add(sig);
+    }
+
+    for (List<Record> rrset : this.rrsets.values()) {
+      int type = rrset.get(0).getRRsetType();
+      if (type != Type.NSEC && type != Type.NSEC3 && type != Type.SOA) {
+        continue;
+      }
+
+      for (Record r : rrset) {
+        if (r instanceof RRSIGRecord) {
+          this.denials
+              .computeIfAbsent(((RRSIGRecord) r).getSigner(), k -> new ArrayList<>())
+              .addAll(rrset);
+          break;
+        }
+      }
+    }
+  }
+
+  private static String key(Name name, int type) {
+    return name.canonicalize() + "/" + type;
+  }
+
+  @Override
+  public CompletionStage<Message> sendAsync(Message query) {
+    Record q = query.getQuestion();
+    Message response = new Message(query.getHeader().getID());
+    response.getHeader().setFlag(Flags.QR);
+    response.addRecord(q, Section.QUESTION);
+
+    List<Record> answer = this.rrsets.get(key(q.getName(), q.getType()));
+    if (answer != null && (q.getType() == Type.DS || q.getType() == Type.DNSKEY)) {
+      answer.forEach(r -> response.addRecord(r, Section.ANSWER));
+      return CompletableFuture.completedFuture(response);
+    }
+
+    if (q.getType() == Type.DS) {
+      // the DS records are in the parent zone, prove their absence with its NSEC/NSEC3s
+      Name zone = null;
+      for (Name signer : this.denials.keySet()) {
+        if (q.getName().subdomain(signer)
+            && !q.getName().equals(signer)
+            && (zone == null || signer.labels() > zone.labels())) {
+          zone = signer;
+        }
+      }
+
+      if (zone != null) {
+        this.denials.get(zone).forEach(r -> response.addRecord(r, Section.AUTHORITY));
+        return CompletableFuture.completedFuture(response);
+      }
+    }
+
+    CompletableFuture<Message> f = new CompletableFuture<>();
+    f.completeExceptionally(
+        new IOException(
+            "The authentication chain does not contain "
+                + q.getName()
+                + "/"
+                + Type.string(q.getType())));
+    return f;
+  }
+
+  @Override
+  public void setPort(int port) {}
+
+  @Override
+  public void setTCP(boolean flag) {}
+
+  @Override
+  public void setIgnoreTruncation(boolean flag) {}
+
+  @Override
+  public void setEDNS(int version, int payloadSize, int flags, List<EDNSOption> options) {}
+
+  @Override
+  public void setTSIGKey(TSIG key) {}
+
+  @Override
+  public void setTimeout(Duration timeout) {}
+}
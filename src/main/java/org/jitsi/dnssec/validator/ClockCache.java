@@ -0,0 +1,246 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A size limited, concurrent cache whose entries expire at a fixed point in time.
+ *
+ * <p>When the maximum size is reached, entries are evicted with the CLOCK (second chance)
+ * algorithm: every hit marks an entry as referenced, and the eviction hand only removes entries
+ * that were not referenced since it last passed them. No operation takes a global lock.
+ *
+ * <p>Entries can be stored with a weight, e.g. the cost to recompute them. An entry with weight
+ * <i>w</i> is evicted on the <i>w</i>-th pass of the hand without hits, and every hit restores its
+ * <i>w</i> chances (generalized CLOCK). The default weight of 1 is the plain second chance
+ * algorithm.
+ *
+ * @param <K> The type of the lookup keys.
+ * @param <V> The type of the cached values.
+ */
+final class ClockCache<K, V> {
+  /** This is the main caching data structure. */
+  private final ConcurrentMap<K, Entry<K, V>> cache;
+
+  /** The entries in insertion order, the head of the queue is the CLOCK hand. */
+  private final Queue<Entry<K, V>> clock;
+
+  /** The number of entries in the clock, including those that were replaced or have expired. */
+  private final AtomicInteger clockLength;
+
+  /** This is the maximum number of entries that the cache will hold. */
+  private volatile int maxSize;
+
+  /** The largest weight of any stored entry, i.e. the number of passes eviction can take. */
+  private volatile int maxWeight = 1;
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param maxSize The maximum number of entries that the cache will hold.
+   */
+  ClockCache(int maxSize) {
+    this.cache = new ConcurrentHashMap<>();
+    this.clock = new ConcurrentLinkedQueue<>();
+    this.clockLength = new AtomicInteger();
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Changes the maximum number of entries. Excess entries are evicted on the next {@link #put}.
+   *
+   * @param maxSize The maximum number of entries that the cache will hold.
+   */
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the maximum number of entries.
+   *
+   * @return The maximum number of entries that the cache will hold.
+   */
+  int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Gets the number of entries, including expired entries that were not yet removed.
+   *
+   * @return The number of entries in the cache.
+   */
+  int size() {
+    return this.cache.size();
+  }
+
+  /**
+   * Gets a value from the cache and marks it as recently used.
+   *
+   * @param key The key of the value.
+   * @param now The current time [ms], expired entries are removed.
+   * @return The value, or <code>null</code> if there is none or it has expired.
+   */
+  V get(K key, long now) {
+    Entry<K, V> entry = this.cache.get(key);
+    if (entry == null) {
+      return null;
+    }
+
+    if (entry.expiration < now) {
+      this.cache.remove(key, entry);
+      return null;
+    }
+
+    entry.credits = entry.weight;
+    return entry.value;
+  }
+
+  /**
+   * Gets an entry from the cache without marking it as recently used, e.g. to inspect it for
+   * maintenance. Unlike {@link #get}, this does not keep the entry from being evicted.
+   *
+   * @param key The key of the value.
+   * @param now The current time [ms].
+   * @return The entry, or <code>null</code> if there is none or it has expired.
+   */
+  Entry<K, V> peek(K key, long now) {
+    Entry<K, V> entry = this.cache.get(key);
+    return entry == null || entry.expiration < now ? null : entry;
+  }
+
+  /**
+   * Stores a value, replacing any previous value with the same key.
+   *
+   * @param key The key of the value.
+   * @param value The value to store.
+   * @param expiration The time [ms] when the value expires.
+   */
+  void put(K key, V value, long expiration) {
+    this.put(key, value, expiration, 1);
+  }
+
+  /**
+   * Stores a value with a weight, replacing any previous value with the same key.
+   *
+   * @param key The key of the value.
+   * @param value The value to store.
+   * @param expiration The time [ms] when the value expires.
+   * @param weight The number of chances the entry gets from the CLOCK hand, at least 1.
+   */
+  void put(K key, V value, long expiration, int weight) {
+    Entry<K, V> entry = new Entry<>(key, value, expiration, Math.max(1, weight));
+    if (entry.weight > this.maxWeight) {
+      this.maxWeight = entry.weight;
+    }
+
+    this.cache.put(key, entry);
+    this.clock.offer(entry);
+    this.clockLength.incrementAndGet();
+    this.evict();
+  }
+
+  /**
+   * Removes a value from the cache.
+   *
+   * @param key The key of the value to remove.
+   */
+  void remove(K key) {
+    this.cache.remove(key);
+  }
+
+  /** Removes all entries from the cache. */
+  void clear() {
+    this.cache.clear();
+  }
+
+  /**
+   * Advances the CLOCK hand until the cache is within its size limit again. Entries that were hit
+   * since the hand last passed them get a second chance, entries that were already replaced or
+   * expired are dropped from the clock.
+   */
+  private void evict() {
+    // bound the number of steps so that concurrent hits cannot keep the hand spinning forever
+    int steps = (this.maxWeight + 1) * (this.clockLength.get() + 1);
+    while (steps-- > 0) {
+      int size = this.cache.size();
+      boolean full = size > this.maxSize;
+      if (!full && this.clockLength.get() <= 2 * size + 1) {
+        return;
+      }
+
+      Entry<K, V> hand = this.clock.poll();
+      if (hand == null) {
+        return;
+      }
+
+      this.clockLength.decrementAndGet();
+      if (this.cache.get(hand.key) != hand) {
+        continue;
+      }
+
+      if (full && hand.credits <= 0) {
+        this.cache.remove(hand.key, hand);
+        continue;
+      }
+
+      // only take a credit when an entry was actually needed for eviction, a pass to purge
+      // replaced entries must not count as a missed chance
+      if (full) {
+        hand.credits--;
+      }
+
+      this.clock.offer(hand);
+      this.clockLength.incrementAndGet();
+    }
+  }
+
+  /** A cached value with its expiration date. */
+  static final class Entry<K, V> {
+    private final K key;
+    private final V value;
+    private final long expiration;
+    private final int weight;
+
+    /** The remaining passes of the CLOCK hand, reset to the weight on every hit. */
+    private volatile int credits;
+
+    Entry(K key, V value, long expiration, int weight) {
+      this.key = key;
+      this.value = value;
+      this.expiration = expiration;
+      this.weight = weight;
+      this.credits = weight - 1;
+    }
+
+    /**
+     * Gets the cached value.
+     *
+     * @return The cached value.
+     */
+    V getValue() {
+      return this.value;
+    }
+
+    /**
+     * Gets the time when the value expires.
+     *
+     * @return The expiration time [ms].
+     */
+    long getExpiration() {
+      return this.expiration;
+    }
+  }
+}
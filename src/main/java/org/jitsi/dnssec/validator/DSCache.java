@@ -0,0 +1,114 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Type;
+
+/**
+ * Cache of validated DS RRsets and of proofs that a delegation has no (usable) DS records.
+ *
+ * <p>DS RRsets usually have a much longer TTL than the DNSKEY RRsets of the child zone. With the DS
+ * RRset at hand, fetching the DNSKEYs of a zone again after they expired from the {@link KeyCache}
+ * takes a single DNSKEY query instead of a DS and a DNSKEY query.
+ */
+public final class DSCache {
+  /** Name of the property that configures the maximum cache size, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.dscache.max_size";
+
+  /** Name of the property that configures the maximum TTL [s] of the cached entries. */
+  public static final String MAX_TTL_CONFIG = "org.jitsi.dnssec.dscache.max_ttl";
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 3600;
+  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+  /** The DS RRsets or null key entries, by owner name and class. */
+  private final ClockCache<NameClassKey, KeyEntry> cache = new ClockCache<>(DEFAULT_MAX_CACHE_SIZE);
+
+  /** This is the maximum TTL [s] that all entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** Creates a new instance of this class. */
+  DSCache() {}
+
+  /**
+   * Initialize the cache. The recognized configuration values are {@link #MAX_CACHE_SIZE_CONFIG}
+   * and {@link #MAX_TTL_CONFIG}.
+   *
+   * @param config The configuration data.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Gets the validated DS RRset or the proof of its absence for exactly the given name.
+   *
+   * @param n The owner name of the DS RRset.
+   * @param dclass The class of the DS RRset.
+   * @return A good key entry with the DS RRset, a null key entry if the delegation is insecure, or
+   *     <code>null</code> if nothing is cached for the name.
+   */
+  KeyEntry get(Name n, int dclass) {
+    if (this.cache.getMaxSize() <= 0) {
+      return null;
+    }
+
+    return this.cache.get(new NameClassKey(n, dclass), System.currentTimeMillis());
+  }
+
+  /**
+   * Stores a validated DS RRset or the proof of its absence. Entries that are neither good DS
+   * RRsets nor null keys are ignored.
+   *
+   * @param dsKE The result of validating a DS response.
+   */
+  void store(KeyEntry dsKE) {
+    if (this.cache.getMaxSize() <= 0) {
+      return;
+    }
+
+    if (!dsKE.isNull() && !(dsKE.isGood() && dsKE.getType() == Type.DS)) {
+      return;
+    }
+
+    long ttl = Math.min(dsKE.getTTL(), this.maxTtl);
+    this.cache.put(
+        new NameClassKey(dsKE.getName(), dsKE.getDClass()),
+        dsKE,
+        System.currentTimeMillis() + ttl * MILLISECONDS_PER_SECOND);
+  }
+
+  /** Removes all entries, e.g. when the trust anchors change. */
+  void clear() {
+    this.cache.clear();
+  }
+
+  /**
+   * Gets the number of cached DS RRsets and proofs of their absence.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return this.cache.size();
+  }
+}
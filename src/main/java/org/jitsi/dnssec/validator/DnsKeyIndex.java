@@ -0,0 +1,68 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.RRset;
+import org.xbill.DNS.Record;
+
+/**
+ * Immutable index of the DNSKEYs of an RRset by algorithm and key tag (footprint). Key tags are not
+ * unique, so a lookup can return more than one key.
+ */
+final class DnsKeyIndex {
+  private static final DNSKEYRecord[] NONE = new DNSKEYRecord[0];
+
+  private final Map<Integer, DNSKEYRecord[]> keys;
+
+  /**
+   * Creates the index for all DNSKEY records in an RRset. Other records are ignored.
+   *
+   * @param rrset The RRset to index.
+   */
+  DnsKeyIndex(RRset rrset) {
+    Map<Integer, List<DNSKEYRecord>> lists = new HashMap<>();
+    for (Record r : rrset.rrs(false)) {
+      if (r instanceof DNSKEYRecord) {
+        DNSKEYRecord dnskey = (DNSKEYRecord) r;
+        lists
+            .computeIfAbsent(
+                indexKey(dnskey.getAlgorithm(), dnskey.getFootprint()), k -> new ArrayList<>(1))
+            .add(dnskey);
+      }
+    }
+
+    this.keys = new HashMap<>(lists.size() * 2);
+    for (Map.Entry<Integer, List<DNSKEYRecord>> e : lists.entrySet()) {
+      this.keys.put(e.getKey(), e.getValue().toArray(NONE));
+    }
+  }
+
+  /**
+   * Gets the keys with the given algorithm and key tag.
+   *
+   * @param algorithm The DNSSEC algorithm number.
+   * @param keyTag The key tag (footprint).
+   * @return The matching keys, or an empty array. The array is shared and must not be modified.
+   */
+  DNSKEYRecord[] get(int algorithm, int keyTag) {
+    DNSKEYRecord[] result = this.keys.get(indexKey(algorithm, keyTag));
+    return result == null ? NONE : result;
+  }
+
+  private static int indexKey(int algorithm, int keyTag) {
+    return algorithm << 16 | keyTag;
+  }
+}
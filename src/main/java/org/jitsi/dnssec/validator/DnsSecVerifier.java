@@ -40,9 +40,12 @@
 
 package org.jitsi.dnssec.validator;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import org.jitsi.dnssec.SRRset;
 import org.jitsi.dnssec.SecurityStatus;
 import org.slf4j.Logger;
@@ -52,7 +55,6 @@ import org.xbill.DNS.DNSSEC;
 import org.xbill.DNS.DNSSEC.DNSSECException;
 import org.xbill.DNS.RRSIGRecord;
 import org.xbill.DNS.RRset;
-import org.xbill.DNS.Record;
 import org.xbill.DNS.Type;
 
 /**
@@ -62,19 +64,45 @@ import org.xbill.DNS.Type;
  * @author davidb
  */
 public class DnsSecVerifier {
+  /**
+   * Name of the property that configures the maximum number of remembered successful signature
+   * verifications, 0 disables the cache.
+   */
+  public static final String CACHE_SIZE_CONFIG = "org.jitsi.dnssec.verifier.cache_size";
+
   private static final Logger logger = LoggerFactory.getLogger(DnsSecVerifier.class);
+  private static final int DEFAULT_CACHE_SIZE = 1000;
+  /**
+   * Successful verifications, indexed by a digest over the signed data, the signature and the key.
+   * The entries expire together with the signature.
+   */
+  private final ClockCache<ByteBuffer, Boolean> verified = new ClockCache<>(DEFAULT_CACHE_SIZE);
+
+  /**
+   * Initialize the verifier. The recognized configuration value is {@link #CACHE_SIZE_CONFIG}.
+   *
+   * @param config The configuration data for this module.
+   */
+  public void init(Properties config) {
+    String s = config.getProperty(CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.verified.setMaxSize(Integer.parseInt(s));
+      this.verified.clear();
+    }
+  }
 
   /**
    * Find the matching DNSKEY(s) to an RRSIG within a DNSKEY rrset. Normally this will only return
    * one DNSKEY. It can return more than one, since KeyID/Footprints are not guaranteed to be
    * unique.
    *
-   * @param dnskeyRrset The DNSKEY rrset to search.
+   * @param dnskeyRrset The DNSKEY rrset to search. If this is a {@link KeyEntry}, its prebuilt
+   *     index is used.
    * @param signature The RRSIG to match against.
-   * @return A List contains a one or more DNSKEYRecord objects, or null if a matching DNSKEY could
-   *     not be found.
+   * @return An array with one or more DNSKEYRecord objects, or null if a matching DNSKEY could not
+   *     be found.
    */
-  private List<DNSKEYRecord> findKey(RRset dnskeyRrset, RRSIGRecord signature) {
+  private DNSKEYRecord[] findKey(RRset dnskeyRrset, RRSIGRecord signature) {
     if (!signature.getSigner().equals(dnskeyRrset.getName())) {
       logger.trace(
           "findKey: could not find appropriate key because incorrect keyset was supplied. Wanted: "
@@ -86,15 +114,14 @@ public class DnsSecVerifier {
 
     int keyid = signature.getFootprint();
     int alg = signature.getAlgorithm();
-    List<DNSKEYRecord> res = new ArrayList<>(dnskeyRrset.size());
-    for (Record r : dnskeyRrset.rrs()) {
-      DNSKEYRecord dnskey = (DNSKEYRecord) r;
-      if (dnskey.getAlgorithm() == alg && dnskey.getFootprint() == keyid) {
-        res.add(dnskey);
-      }
+    DNSKEYRecord[] res;
+    if (dnskeyRrset instanceof KeyEntry) {
+      res = ((KeyEntry) dnskeyRrset).findKeys(alg, keyid);
+    } else {
+      res = new DnsKeyIndex(dnskeyRrset).get(alg, keyid);
     }
 
-    if (res.size() == 0) {
+    if (res.length == 0) {
       logger.trace(
           "findKey: could not find a key matching the algorithm and footprint in supplied keyset. ");
       return null;
@@ -116,7 +143,7 @@ public class DnsSecVerifier {
    */
   private SecurityStatus verifySignature(
       SRRset rrset, RRSIGRecord sigrec, RRset keyRrset, Instant date) {
-    List<DNSKEYRecord> keys = this.findKey(keyRrset, sigrec);
+    DNSKEYRecord[] keys = this.findKey(keyRrset, sigrec);
     if (keys == null) {
       logger.trace("could not find appropriate key");
       return SecurityStatus.BOGUS;
@@ -131,7 +158,7 @@ public class DnsSecVerifier {
           continue;
         }
 
-        DNSSEC.verify(rrset, sigrec, key, date);
+        this.verifyCached(rrset, sigrec, key, date);
         ValUtils.setCanonicalNsecOwner(rrset, sigrec);
         return SecurityStatus.SECURE;
       } catch (DNSSECException e) {
@@ -194,7 +221,7 @@ public class DnsSecVerifier {
       }
 
       try {
-        DNSSEC.verify(rrset, sigrec, dnskey, date);
+        this.verifyCached(rrset, sigrec, dnskey, date);
         return SecurityStatus.SECURE;
       } catch (DNSSECException e) {
         logger.error("Failed to validate RRset", e);
@@ -204,4 +231,58 @@ public class DnsSecVerifier {
     logger.info("RRset failed to verify: all signatures were BOGUS");
     return SecurityStatus.BOGUS;
   }
+
+  /**
+   * Verifies a signature, unless exactly the same RRset, signature and key were already verified
+   * successfully. Only successful verifications are remembered, and only until the signature
+   * expires.
+   *
+   * @param rrset The RRset to verify.
+   * @param sigrec The signature record that signs the RRset.
+   * @param key The key that created the signature.
+   * @param date The date against which to verify the signature.
+   * @throws DNSSECException if the signature did not verify with the key.
+   */
+  private void verifyCached(RRset rrset, RRSIGRecord sigrec, DNSKEYRecord key, Instant date)
+      throws DNSSECException {
+    if (this.verified.getMaxSize() <= 0) {
+      DNSSEC.verify(rrset, sigrec, key, date);
+      return;
+    }
+
+    ByteBuffer id = verificationId(rrset, sigrec, key);
+    // the cache removes entries after the expiration, but the date could be before the inception
+    if (!date.isBefore(sigrec.getTimeSigned())
+        && this.verified.get(id, date.toEpochMilli()) != null) {
+      logger.trace(
+          "Signature of {}/{} verified before", rrset.getName(), Type.string(rrset.getType()));
+      return;
+    }
+
+    // dnsjava decodes the public key only once per DNSKEY record, and the key cache keeps the
+    // records, see KeyEntry
+    DNSSEC.verify(rrset, sigrec, key, date);
+    this.verified.put(id, Boolean.TRUE, sigrec.getExpire().toEpochMilli());
+  }
+
+  /**
+   * Computes the SHA-256 digest of the canonical signed data (the RRSIG RDATA without the signature
+   * and the canonical RRset), the signature, and the owner name and canonical RDATA of the key. The
+   * owner name is part of the id because a hit skips the check that the key owner is the signer.
+   */
+  private static ByteBuffer verificationId(RRset rrset, RRSIGRecord sigrec, DNSKEYRecord key) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // COVERAGE:OFF -> SHA-256 is a mandatory algorithm of every JRE
+      throw new IllegalStateException(e);
+    }
+
+    md.update(DNSSEC.digestRRset(sigrec, rrset));
+    md.update(sigrec.getSignature());
+    md.update(key.getName().toWireCanonical());
+    md.update(key.rdataToWireCanonical());
+    return ByteBuffer.wrap(md.digest());
+  }
 }
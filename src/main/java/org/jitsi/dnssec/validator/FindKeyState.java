@@ -40,8 +40,13 @@
 
 package org.jitsi.dnssec.validator;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import org.jitsi.dnssec.SMessage;
 import org.jitsi.dnssec.SRRset;
 import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
 
 /** State-object for the key-finding phase. */
 class FindKeyState {
@@ -57,6 +62,9 @@ class FindKeyState {
    */
   Name signerName;
 
+  /** Whether the signer name is taken from a signature, i.e. is most likely a zone apex. */
+  boolean signed;
+
   /** The query class of the key to find. */
   int qclass;
 
@@ -65,4 +73,16 @@ class FindKeyState {
 
   /** The initial key name when the key search is started from a trust anchor. */
   Name currentDSKeyName;
+
+  /** The deepest name whose DS query was sent ahead of the label by label search. */
+  Name sentAheadTo;
+
+  /** The responses to DS and DNSKEY queries that were sent ahead, by question. */
+  Map<Record, CompletionStage<SMessage>> prefetched;
+
+  /**
+   * The DS and DNSKEY records (and proofs of their absence) that the key search used so far, or
+   * <code>null</code> if the chain is not captured.
+   */
+  List<Record> chain;
 }
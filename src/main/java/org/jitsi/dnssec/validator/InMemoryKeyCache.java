@@ -0,0 +1,150 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This file is based on work under the following copyright and permission
+ * notice:
+ *
+ *     Copyright (c) 2005 VeriSign. All rights reserved.
+ *
+ *     Redistribution and use in source and binary forms, with or without
+ *     modification, are permitted provided that the following conditions are
+ *     met:
+ *
+ *     1. Redistributions of source code must retain the above copyright
+ *        notice, this list of conditions and the following disclaimer.
+ *     2. Redistributions in binary form must reproduce the above copyright
+ *        notice, this list of conditions and the following disclaimer in the
+ *        documentation and/or other materials provided with the distribution.
+ *     3. The name of the author may not be used to endorse or promote
+ *        products derived from this software without specific prior written
+ *        permission.
+ *
+ *     THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *     IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *     WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ *     ARE DISCLAIMED. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT,
+ *     INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ *     (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *     SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ *     HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ *     STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING
+ *     IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ *     POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Type;
+
+/**
+ * On-heap {@link KeyCache} for DNSKEY RRsets or corresponding null/bad key entries with a limited
+ * size and respect for TTL values. This is the default implementation.
+ *
+ * <p>The cache is safe for concurrent use without a global lock. When the maximum size is reached,
+ * entries are evicted with the CLOCK (second chance) algorithm, see {@link ClockCache}.
+ *
+ * @author davidb
+ * @author Ingo Bauersachs
+ */
+public class InMemoryKeyCache implements KeyCache {
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 900;
+  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+  /** This is the main caching data structure. */
+  private final ClockCache<NameSuffixKey, KeyEntry> cache;
+
+  /** This is the maximum TTL [s] that all key cache entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** Creates a new instance of this class. */
+  public InMemoryKeyCache() {
+    this.cache = new ClockCache<>(DEFAULT_MAX_CACHE_SIZE);
+  }
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>org.jitsi.dnssec.keycache.max_ttl
+   *   <dd>The maximum TTL to apply to any cache entry.
+   *   <dt>org.jitsi.dnssec.keycache.max_size
+   *   <dd>The maximum number of entries that the cache will hold.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  @Override
+  public void init(Properties config) {
+    if (config == null) {
+      return;
+    }
+
+    String s = config.getProperty(MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+    }
+  }
+
+  @Override
+  public KeyEntry find(Name n, int dclass) {
+    long now = System.currentTimeMillis();
+    NameSuffixKey key = new NameSuffixKey(n, dclass);
+    do {
+      KeyEntry entry = this.cache.get(key, now);
+      if (entry != null) {
+        return entry;
+      }
+    } while (key.toParent());
+
+    return null;
+  }
+
+  @Override
+  public void store(KeyEntry ke) {
+    if (!ke.isGood() && !ke.isNull() && !ke.isBad()) {
+      return;
+    }
+
+    if (ke.getType() != Type.DNSKEY) {
+      return;
+    }
+
+    long ttl = ke.getTTL();
+    if (ttl > this.maxTtl) {
+      ttl = this.maxTtl;
+    }
+
+    this.cache.put(
+        new NameSuffixKey(ke.getName(), ke.getDClass()),
+        ke,
+        System.currentTimeMillis() + (ttl * MILLISECONDS_PER_SECOND));
+  }
+
+  @Override
+  public double getRemainingLifetime(Name n, int dclass) {
+    long now = System.currentTimeMillis();
+    // a check whether to refresh a key is not a use of it
+    ClockCache.Entry<NameSuffixKey, KeyEntry> entry =
+        this.cache.peek(new NameSuffixKey(n, dclass), now);
+    if (entry == null) {
+      return 1;
+    }
+
+    long ttl = Math.min(entry.getValue().getTTL(), this.maxTtl) * MILLISECONDS_PER_SECOND;
+    return ttl <= 0 ? 0 : Math.max(0, Math.min(1, (entry.getExpiration() - now) / (double) ttl));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import org.xbill.DNS.Name;
+
+/**
+ * Cache of the delegations that were proven to be insecure, i.e. to have no DS record. Everything
+ * below such a zone cut is insecure, so the keys of RRsets below it need not be looked up at all.
+ *
+ * <p>Unlike the {@link KeyCache}, the entries of this cache are not evicted by the DNSKEY RRsets of
+ * signed zones, and a lookup does not need the trust anchors first.
+ */
+public final class InsecureDelegationCache {
+  /** Name of the property that configures the maximum cache size, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.insecurecache.max_size";
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 900;
+  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+  /** The null key entries of the insecure delegations, by owner name and class. */
+  private final ClockCache<NameSuffixKey, KeyEntry> cache =
+      new ClockCache<>(DEFAULT_MAX_CACHE_SIZE);
+
+  /** This is the maximum TTL [s] that all entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** Creates a new instance of this class. */
+  InsecureDelegationCache() {}
+
+  /**
+   * Initialize the cache. The recognized configuration values are {@link #MAX_CACHE_SIZE_CONFIG}
+   * and the maximum TTL of the key cache, {@link KeyCache#MAX_TTL_CONFIG}.
+   *
+   * @param config The configuration data.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(KeyCache.MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Finds the insecure delegation that a name is at or below.
+   *
+   * @param n The name to start the search.
+   * @param dclass The class of the delegation.
+   * @return The null key entry of the closest insecure delegation, or <code>null</code> if the name
+   *     is not known to be insecure.
+   */
+  KeyEntry find(Name n, int dclass) {
+    if (this.cache.getMaxSize() <= 0) {
+      return null;
+    }
+
+    long now = System.currentTimeMillis();
+    NameSuffixKey key = new NameSuffixKey(n, dclass);
+    do {
+      KeyEntry entry = this.cache.get(key, now);
+      if (entry != null) {
+        return entry;
+      }
+    } while (key.toParent());
+
+    return null;
+  }
+
+  /**
+   * Stores the proof that a delegation is insecure. Entries that are not null keys are ignored.
+   *
+   * @param ke The null key entry of the delegation.
+   */
+  void store(KeyEntry ke) {
+    if (!ke.isNull() || this.cache.getMaxSize() <= 0) {
+      return;
+    }
+
+    long ttl = Math.min(ke.getTTL(), this.maxTtl);
+    this.cache.put(
+        new NameSuffixKey(ke.getName(), ke.getDClass()),
+        ke,
+        System.currentTimeMillis() + ttl * MILLISECONDS_PER_SECOND);
+  }
+
+  /** Removes all entries, e.g. when the trust anchors change. */
+  void clear() {
+    this.cache.clear();
+  }
+
+  /**
+   * Gets the number of cached delegations.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return this.cache.size();
+  }
+}
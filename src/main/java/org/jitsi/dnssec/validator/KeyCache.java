@@ -40,55 +40,28 @@
 
 package org.jitsi.dnssec.validator;
 
-import java.util.Collections;
-import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Properties;
 import org.xbill.DNS.Name;
-import org.xbill.DNS.Type;
 
 /**
  * Cache for DNSKEY RRsets or corresponding null/bad key entries with a limited size and respect for
  * TTL values.
  *
- * @author davidb
- * @author Ingo Bauersachs
+ * <p>Implementations must be safe for concurrent use. A single instance can thus be shared between
+ * multiple {@link ValidatingResolver}s.
+ *
+ * @see InMemoryKeyCache
+ * @see OffHeapKeyCache
  */
-public class KeyCache {
+public interface KeyCache {
   /** Name of the property that configures the maximum cache TTL. */
-  public static final String MAX_TTL_CONFIG = "org.jitsi.dnssec.keycache.max_ttl";
+  String MAX_TTL_CONFIG = "org.jitsi.dnssec.keycache.max_ttl";
 
   /** Name of the property that configures the maximum cache size. */
-  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.keycache.max_size";
-
-  private static final int MILLISECONDS_PER_SECOND = 1000;
-  private static final int DEFAULT_MAX_TTL = 900;
-  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
-
-  /** This is the main caching data structure. */
-  private Map<String, CacheEntry> cache;
-
-  /** This is the maximum TTL [s] that all key cache entries will have. */
-  private long maxTtl = DEFAULT_MAX_TTL;
-
-  /** This is the maximum number of entries that the key cache will hold. */
-  private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
-
-  /** Creates a new instance of this class. */
-  public KeyCache() {
-    this.cache =
-        Collections.synchronizedMap(
-            new LinkedHashMap<String, CacheEntry>() {
-              @Override
-              protected boolean removeEldestEntry(java.util.Map.Entry<String, CacheEntry> eldest) {
-                return size() >= KeyCache.this.maxCacheSize;
-              }
-            });
-  }
+  String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.keycache.max_size";
 
   /**
-   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   * Initialize the cache. All implementations recognize the following configuration parameters:
    *
    * <dl>
    *   <dt>org.jitsi.dnssec.keycache.max_ttl
@@ -97,23 +70,9 @@ public class KeyCache {
    *   <dd>The maximum number of entries that the cache will hold.
    * </dl>
    *
-   * @param config The configuration information.
+   * @param config The configuration information, can be <code>null</code>.
    */
-  public void init(Properties config) {
-    if (config == null) {
-      return;
-    }
-
-    String s = config.getProperty(MAX_TTL_CONFIG);
-    if (s != null) {
-      this.maxTtl = Long.parseLong(s);
-    }
-
-    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
-    if (s != null) {
-      this.maxCacheSize = Integer.parseInt(s);
-    }
-  }
+  void init(Properties config);
 
   /**
    * Find the 'closest' trusted DNSKEY rrset to the given name.
@@ -122,71 +81,28 @@ public class KeyCache {
    * @param dclass The class this DNSKEY rrset should be in.
    * @return The 'closest' entry to 'n' in the same class as 'dclass'.
    */
-  public KeyEntry find(Name n, int dclass) {
-    while (n.labels() > 0) {
-      String k = this.key(n, dclass);
-      KeyEntry entry = this.lookupEntry(k);
-      if (entry != null) {
-        return entry;
-      }
-
-      n = new Name(n, 1);
-    }
-
-    return null;
-  }
+  KeyEntry find(Name n, int dclass);
 
   /**
    * Store a {@link KeyEntry} in the cache. The entry will be ignored if it isn't a DNSKEY rrset, if
-   * it doesn't have the SECURE security status, or if it isn't a null-Key.
+   * it doesn't have the SECURE security status, or if it isn't a null-Key or a bad key. Bad keys
+   * are cached with their bad reason for their (usually short) TTL.
    *
    * @param ke The key entry to cache.
    */
-  public void store(KeyEntry ke) {
-    if (!ke.isGood() && !ke.isNull()) {
-      return;
-    }
-
-    if (ke.getType() != Type.DNSKEY) {
-      return;
-    }
+  void store(KeyEntry ke);
 
-    String k = this.key(ke.getName(), ke.getDClass());
-    CacheEntry ce = new CacheEntry(ke, this.maxTtl);
-    this.cache.put(k, ce);
-  }
-
-  private String key(Name n, int dclass) {
-    return "K" + dclass + "/" + n;
-  }
-
-  private KeyEntry lookupEntry(String key) {
-    CacheEntry centry = this.cache.get(key);
-    if (centry == null) {
-      return null;
-    }
-
-    if (centry.expiration.before(new Date())) {
-      this.cache.remove(key);
-      return null;
-    }
-
-    return centry.keyEntry;
-  }
-
-  /** Utility class to cache key entries with an expiration date. */
-  private static class CacheEntry {
-    private Date expiration;
-    private KeyEntry keyEntry;
-
-    CacheEntry(KeyEntry keyEntry, long maxTtl) {
-      long ttl = keyEntry.getTTL();
-      if (ttl > maxTtl) {
-        ttl = maxTtl;
-      }
-
-      this.expiration = new Date(System.currentTimeMillis() + (ttl * MILLISECONDS_PER_SECOND));
-      this.keyEntry = keyEntry;
-    }
+  /**
+   * Gets the remaining lifetime of the entry for exactly the given name, relative to the TTL it was
+   * stored with. The {@link ValidatingResolver} uses this to refresh entries before they expire.
+   *
+   * @param n The owner name of the entry.
+   * @param dclass The class of the entry.
+   * @return A value between 0 (expired) and 1 (just stored), or 1 if there is no such entry. The
+   *     default implementation always returns 1, i.e. entries are never refreshed ahead of their
+   *     expiration.
+   */
+  default double getRemainingLifetime(Name n, int dclass) {
+    return 1;
   }
 }
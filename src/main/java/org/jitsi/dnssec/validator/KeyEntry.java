@@ -40,11 +40,19 @@
 
 package org.jitsi.dnssec.validator;
 
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.HashMap;
+import java.util.Map;
 import org.jitsi.dnssec.R;
 import org.jitsi.dnssec.SRRset;
 import org.jitsi.dnssec.SecurityStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC.Algorithm;
+import org.xbill.DNS.DNSSEC.DNSSECException;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.Record;
 import org.xbill.DNS.Type;
@@ -56,6 +64,12 @@ public final class KeyEntry extends SRRset {
   private String badReason;
   private boolean isEmpty;
 
+  /** The DNSKEYs of this entry by algorithm and key tag, <code>null</code> for empty entries. */
+  private final DnsKeyIndex keyIndex;
+
+  /** The sizes [bits] of the public keys in this entry, computed on first use. */
+  private volatile Map<Record, Integer> keySizes;
+
   /**
    * Create a new, positive key entry.
    *
@@ -63,10 +77,12 @@ public final class KeyEntry extends SRRset {
    */
   private KeyEntry(SRRset rrset) {
     super(rrset);
+    this.keyIndex = new DnsKeyIndex(this);
   }
 
   private KeyEntry(Name name, int dclass, long ttl, boolean isBad) {
     super(new SRRset(Record.newRecord(name, Type.DNSKEY, dclass, ttl)));
+    this.keyIndex = null;
     this.isEmpty = true;
     if (isBad) {
       setSecurityStatus(SecurityStatus.BOGUS);
@@ -145,6 +161,86 @@ public final class KeyEntry extends SRRset {
     logger.debug(this.badReason);
   }
 
+  /**
+   * Gets the reason why this key entry is bad or null.
+   *
+   * @return The reason, or <code>null</code> if none was set.
+   */
+  String getBadReason() {
+    return this.badReason;
+  }
+
+  /**
+   * Gets the DNSKEYs of this entry that match an algorithm and key tag.
+   *
+   * @param algorithm The DNSSEC algorithm number.
+   * @param keyTag The key tag (footprint).
+   * @return The matching keys, or an empty array. The array must not be modified.
+   */
+  DNSKEYRecord[] findKeys(int algorithm, int keyTag) {
+    return this.keyIndex == null ? new DNSKEYRecord[0] : this.keyIndex.get(algorithm, keyTag);
+  }
+
+  /**
+   * Gets the size of the public key of a DNSKEY in this entry. The keys of an entry are decoded
+   * only once, and the decoded public keys stay attached to the DNSKEY records for the following
+   * signature verifications.
+   *
+   * @param dnskey The DNSKEY for which to get the key size.
+   * @return The key size [bits], or -1 if the key cannot be decoded or uses an unsupported or
+   *     obsolete algorithm.
+   */
+  int getKeySize(DNSKEYRecord dnskey) {
+    Map<Record, Integer> sizes = this.keySizes;
+    if (sizes == null) {
+      sizes = new HashMap<>();
+      for (Record r : this.rrs(false)) {
+        if (r instanceof DNSKEYRecord) {
+          sizes.put(r, keySize((DNSKEYRecord) r));
+        }
+      }
+
+      this.keySizes = sizes;
+    }
+
+    Integer size = sizes.get(dnskey);
+    return size == null ? keySize(dnskey) : size;
+  }
+
+  private static int keySize(DNSKEYRecord dnskey) {
+    try {
+      switch (dnskey.getAlgorithm()) {
+        case Algorithm.RSASHA1:
+        case Algorithm.RSASHA256:
+        case Algorithm.RSASHA512:
+        case Algorithm.RSA_NSEC3_SHA1:
+          return ((RSAPublicKey) dnskey.getPublicKey()).getModulus().bitLength();
+        case Algorithm.DSA:
+        case Algorithm.DSA_NSEC3_SHA1:
+          return ((DSAPublicKey) dnskey.getPublicKey()).getParams().getP().bitLength();
+        case Algorithm.ECDSAP256SHA256:
+        case Algorithm.ECDSAP384SHA384:
+          return ((ECPublicKey) dnskey.getPublicKey())
+              .getParams()
+              .getCurve()
+              .getField()
+              .getFieldSize();
+        case Algorithm.ECC_GOST:
+          return 512;
+        case Algorithm.ED25519:
+          return 256;
+        case Algorithm.ED448:
+          return 456;
+        default:
+          // includes RSAMD5, obsoleted by rfc6725
+          return -1;
+      }
+    } catch (DNSSECException e) {
+      logger.error("Could not get public key from DNSKEY record", e);
+      return -1;
+    }
+  }
+
   /**
    * Validate if this key instance is valid for the specified name.
    *
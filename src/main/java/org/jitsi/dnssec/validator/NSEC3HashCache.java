@@ -0,0 +1,151 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+
+/**
+ * Cache of NSEC3 owner name hashes that is shared by all responses a resolver validates.
+ *
+ * <p>Hashes are indexed by the name, the hash algorithm, the iterations and the salt. Hashes with
+ * more iterations are more expensive to recompute and are therefore kept longer when the cache is
+ * full. The hit and miss counters show how effective the cache is, e.g. under random subdomain
+ * traffic.
+ */
+public final class NSEC3HashCache {
+  /** Name of the property that configures the maximum cache size, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.nsec3.hashcache.max_size";
+
+  private static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+
+  private final ClockCache<Key, byte[]> cache = new ClockCache<>(DEFAULT_MAX_CACHE_SIZE);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** Creates a new instance of this class. */
+  NSEC3HashCache() {}
+
+  /**
+   * Initialize the cache. The recognized configuration value is {@link #MAX_CACHE_SIZE_CONFIG}.
+   *
+   * @param config The configuration data.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Gets the hash of a name with the parameters of an NSEC3 record, from the cache if possible.
+   *
+   * @param parameters The NSEC3 record that defines the hash algorithm, iterations and salt.
+   * @param name The name to hash.
+   * @return The hash. The array is shared and must not be modified.
+   * @throws NoSuchAlgorithmException if the hash algorithm is not supported.
+   */
+  byte[] hashName(NSEC3Record parameters, Name name) throws NoSuchAlgorithmException {
+    if (this.cache.getMaxSize() <= 0) {
+      return parameters.hashName(name);
+    }
+
+    Key key = new Key(parameters, name);
+    byte[] hash = this.cache.get(key, 0);
+    if (hash != null) {
+      this.hits.increment();
+      return hash;
+    }
+
+    this.misses.increment();
+    hash = parameters.hashName(name);
+    this.cache.put(key, hash, Long.MAX_VALUE, weight(parameters.getIterations()));
+    return hash;
+  }
+
+  /** The number of CLOCK chances of a hash grows with the logarithm of its iterations. */
+  private static int weight(int iterations) {
+    return 1 + Integer.SIZE - Integer.numberOfLeadingZeros(iterations);
+  }
+
+  /**
+   * Gets the number of hashes that were served from the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHitCount() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Gets the number of hashes that had to be computed.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMissCount() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Gets the number of cached hashes.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return this.cache.size();
+  }
+
+  /** Lookup key of a hash: the name and the hash parameters. */
+  private static final class Key {
+    private final Name name;
+    private final int algorithm;
+    private final int iterations;
+    private final byte[] salt;
+
+    Key(NSEC3Record parameters, Name name) {
+      this.name = name;
+      this.algorithm = parameters.getHashAlgorithm();
+      this.iterations = parameters.getIterations();
+      this.salt = parameters.getSalt();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+
+      if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) o;
+      return this.algorithm == other.algorithm
+          && this.iterations == other.iterations
+          && Arrays.equals(this.salt, other.salt)
+          && this.name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = this.name.hashCode();
+      result = 31 * result + this.algorithm;
+      result = 31 * result + this.iterations;
+      return 31 * result + Arrays.hashCode(this.salt);
+    }
+  }
+}
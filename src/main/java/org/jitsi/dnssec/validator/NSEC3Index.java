@@ -0,0 +1,287 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jitsi.dnssec.SRRset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.utils.base32;
+
+/**
+ * Index over the NSEC3 records of a response that belong to one zone. The owner hashes are decoded
+ * once, the records are sorted by owner hash for the covering lookups, and every name is hashed
+ * only once per set of NSEC3 parameters. Hashes are shared with other responses through a {@link
+ * NSEC3HashCache}.
+ *
+ * <p>If more than one record matches or covers a name, the one that came first in the response is
+ * returned, like a linear search through the records would.
+ */
+final class NSEC3Index {
+  private static final Logger logger = LoggerFactory.getLogger(NSEC3Index.class);
+  private static final ByteArrayComparator BAC = new ByteArrayComparator();
+
+  private final base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+  private final Name zonename;
+  private final NSEC3HashCache hashCache;
+
+  /** The records grouped by their hash parameters, in the order of the response. */
+  private final List<Group> groups = new ArrayList<>(1);
+
+  /**
+   * Creates the index.
+   *
+   * @param nsec3s The NSEC3 RRsets of the response. Only the first record of each set is used.
+   * @param zonename The name of the zone that the NSEC3s belong to. Records of other zones are
+   *     ignored.
+   * @param hashCache The cache of hashes across responses.
+   */
+  NSEC3Index(List<SRRset> nsec3s, Name zonename, NSEC3HashCache hashCache) {
+    this.zonename = zonename;
+    this.hashCache = hashCache;
+    Map<Group, Group> byParameters = new HashMap<>();
+    for (int i = 0; i < nsec3s.size(); i++) {
+      NSEC3Record nsec3 = (NSEC3Record) nsec3s.get(i).first();
+      if (nsec3.getName().labels() < 2 || !new Name(nsec3.getName(), 1).equals(zonename)) {
+        continue;
+      }
+
+      Group group = new Group(nsec3);
+      Group existing = byParameters.putIfAbsent(group, group);
+      if (existing == null) {
+        this.groups.add(group);
+      } else {
+        group = existing;
+      }
+
+      Entry entry = new Entry(nsec3, i, b32.fromString(nsec3.getName().getLabelString(0)));
+      group.byOwner.putIfAbsent(nsec3.getName(), entry);
+      if (entry.owner != null) {
+        group.sorted.add(entry);
+      }
+    }
+
+    for (Group group : this.groups) {
+      group.sorted.sort((a, b) -> BAC.compare(a.owner, b.owner));
+    }
+  }
+
+  /**
+   * Find the NSEC3Record that matches a hash of a name.
+   *
+   * @param name The name to find.
+   * @return The matching NSEC3Record if one is present, null otherwise.
+   */
+  NSEC3Record findMatching(Name name) {
+    Entry best = null;
+    for (Group group : this.groups) {
+      byte[] hash = group.hash(name, this.hashCache);
+      if (hash == null) {
+        continue;
+      }
+
+      try {
+        Entry entry = group.byOwner.get(new Name(b32.toString(hash), this.zonename));
+        if (entry != null && (best == null || entry.position < best.position)) {
+          best = entry;
+        }
+      } catch (TextParseException e) {
+        logger.debug("Unrecognized NSEC3 hash for " + name, e);
+      }
+    }
+
+    return best == null ? null : best.nsec3;
+  }
+
+  /**
+   * Find a covering NSEC3 for a name. Covers specifically means that the hash of the name is in
+   * between the owner and next hashes and does not equal either.
+   *
+   * @param name The name to consider.
+   * @return A covering NSEC3 if one is present, null otherwise.
+   */
+  NSEC3Record findCovering(Name name) {
+    Entry best = null;
+    for (Group group : this.groups) {
+      byte[] hash = group.hash(name, this.hashCache);
+      if (hash == null) {
+        continue;
+      }
+
+      Entry entry = group.findCovering(hash);
+      if (entry != null && (best == null || entry.position < best.position)) {
+        best = entry;
+      }
+    }
+
+    return best == null ? null : best.nsec3;
+  }
+
+  /**
+   * Given a hash and a candidate NSEC3Record, determine if that NSEC3Record covers the hash.
+   *
+   * @param entry The candidate NSEC3Record with its decoded owner hash.
+   * @param hash The precalculated hash.
+   * @return True if the NSEC3Record covers the hash.
+   */
+  private static boolean covers(Entry entry, byte[] hash) {
+    byte[] owner = entry.owner;
+    byte[] next = entry.nsec3.getNext();
+
+    // This is the "normal case: owner < next and owner < hash < next
+    if (BAC.compare(owner, hash) < 0 && BAC.compare(hash, next) < 0) {
+      return true;
+    }
+
+    // this is the end of zone case:
+    // next <= owner && (hash > owner || hash < next)
+    return BAC.compare(next, owner) <= 0
+        && (BAC.compare(hash, owner) > 0 || BAC.compare(hash, next) < 0);
+  }
+
+  /** The records that share the same hash algorithm, iterations and salt. */
+  private static final class Group {
+    private final NSEC3Record parameters;
+    private final Map<Name, byte[]> hashes = new HashMap<>();
+    private final Map<Name, Entry> byOwner = new HashMap<>();
+    private final List<Entry> sorted = new ArrayList<>();
+    private boolean unsupported;
+    private Boolean wellFormed;
+
+    Group(NSEC3Record parameters) {
+      this.parameters = parameters;
+    }
+
+    /** Gets the hash of a name with the parameters of this group, or null if not supported. */
+    byte[] hash(Name name, NSEC3HashCache hashCache) {
+      if (this.unsupported) {
+        return null;
+      }
+
+      byte[] hash = this.hashes.get(name);
+      if (hash == null) {
+        try {
+          hash = hashCache.hashName(this.parameters, name);
+          this.hashes.put(name, hash);
+        } catch (NoSuchAlgorithmException e) {
+          logger.debug("Unrecognized NSEC3 in set:" + this.parameters, e);
+          this.unsupported = true;
+        }
+      }
+
+      return hash;
+    }
+
+    /** Finds the first (in response order) record that covers a hash. */
+    Entry findCovering(byte[] hash) {
+      // the covering record of a well-formed chain is the one with the largest owner hash that is
+      // smaller than the hash, or the last record of the chain
+      int low = 0;
+      int high = this.sorted.size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (BAC.compare(this.sorted.get(mid).owner, hash) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+
+      Entry candidate = null;
+      if (high >= 0 && covers(this.sorted.get(high), hash)) {
+        candidate = this.sorted.get(high);
+      } else if (!this.sorted.isEmpty() && covers(this.sorted.get(this.sorted.size() - 1), hash)) {
+        candidate = this.sorted.get(this.sorted.size() - 1);
+      }
+
+      // with overlapping records, a record before the candidate in the response could also cover
+      // the hash, fall back to the full scan when the chain is not well-formed
+      if (this.sorted.size() > 1 && !this.wellFormed()) {
+        for (Entry e : this.sorted) {
+          if (covers(e, hash) && (candidate == null || e.position < candidate.position)) {
+            candidate = e;
+          }
+        }
+      }
+
+      return candidate;
+    }
+
+    /**
+     * Checks if no two records of this group cover overlapping ranges, i.e. the next hash of every
+     * record is at most the owner hash of the following record, and only the last record wraps
+     * around to the start of the chain.
+     */
+    private boolean wellFormed() {
+      if (this.wellFormed == null) {
+        boolean result = true;
+        int last = this.sorted.size() - 1;
+        for (int i = 0; i < last && result; i++) {
+          Entry e = this.sorted.get(i);
+          byte[] next = e.nsec3.getNext();
+          result =
+              BAC.compare(e.owner, next) < 0
+                  && BAC.compare(next, this.sorted.get(i + 1).owner) <= 0;
+        }
+
+        Entry e = this.sorted.get(last);
+        byte[] next = e.nsec3.getNext();
+        if (result && BAC.compare(next, e.owner) <= 0) {
+          result = BAC.compare(next, this.sorted.get(0).owner) <= 0;
+        }
+
+        this.wellFormed = result;
+      }
+
+      return this.wellFormed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Group)) {
+        return false;
+      }
+
+      NSEC3Record other = ((Group) o).parameters;
+      return this.parameters.getHashAlgorithm() == other.getHashAlgorithm()
+          && this.parameters.getIterations() == other.getIterations()
+          && Arrays.equals(this.parameters.getSalt(), other.getSalt());
+    }
+
+    @Override
+    public int hashCode() {
+      int result = this.parameters.getHashAlgorithm();
+      result = 31 * result + this.parameters.getIterations();
+      return 31 * result + Arrays.hashCode(this.parameters.getSalt());
+    }
+  }
+
+  /** An NSEC3 record with its position in the response and decoded owner hash. */
+  private static final class Entry {
+    private final NSEC3Record nsec3;
+    private final int position;
+    private final byte[] owner;
+
+    Entry(NSEC3Record nsec3, int position, byte[] owner) {
+      this.nsec3 = nsec3;
+      this.position = position;
+      this.owner = owner;
+    }
+  }
+}
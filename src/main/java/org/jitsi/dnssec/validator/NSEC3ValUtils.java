@@ -40,10 +40,6 @@
 
 package org.jitsi.dnssec.validator;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.interfaces.DSAPublicKey;
-import java.security.interfaces.ECPublicKey;
-import java.security.interfaces.RSAPublicKey;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
@@ -55,16 +51,12 @@ import org.jitsi.dnssec.SecurityStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xbill.DNS.DNSKEYRecord;
-import org.xbill.DNS.DNSSEC.Algorithm;
-import org.xbill.DNS.DNSSEC.DNSSECException;
 import org.xbill.DNS.NSEC3Record;
 import org.xbill.DNS.NSEC3Record.Flags;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.NameTooLongException;
 import org.xbill.DNS.Record;
-import org.xbill.DNS.TextParseException;
 import org.xbill.DNS.Type;
-import org.xbill.DNS.utils.base32;
 
 /** NSEC3 non-existence proof utilities. */
 final class NSEC3ValUtils {
@@ -77,6 +69,9 @@ final class NSEC3ValUtils {
 
   private TreeMap<Integer, Integer> maxIterations;
 
+  /** The owner name hashes of all responses. */
+  private final NSEC3HashCache hashCache = new NSEC3HashCache();
+
   /** Creates a new instance of this class. */
   NSEC3ValUtils() {
     // see RFC5155#10.3 for the max iteration count
@@ -91,11 +86,13 @@ final class NSEC3ValUtils {
    *
    * <ul>
    *   <li>org.jitsi.dnssec.nsec3.iterations.M=N
+   *   <li>{@link NSEC3HashCache#MAX_CACHE_SIZE_CONFIG}
    * </ul>
    *
    * @param config The configuration data.
    */
   void init(Properties config) {
+    this.hashCache.init(config);
     boolean first = true;
     for (Map.Entry<?, ?> s : config.entrySet()) {
       String key = s.getKey().toString();
@@ -116,6 +113,15 @@ final class NSEC3ValUtils {
     }
   }
 
+  /**
+   * Gets the cache of NSEC3 owner name hashes.
+   *
+   * @return The hash cache.
+   */
+  NSEC3HashCache getHashCache() {
+    return this.hashCache;
+  }
+
   /** This is just a simple class to encapsulate the response to a closest encloser proof. */
   private static final class CEResponse {
     private Name closestEncloser;
@@ -186,110 +192,23 @@ final class NSEC3ValUtils {
     return (strip > 0) ? new Name(qname, strip) : qname;
   }
 
-  /**
-   * Find the NSEC3Record that matches a hash of a name.
-   *
-   * @param name The name to find.
-   * @param zonename The name of the zone that the NSEC3s are from.
-   * @param nsec3s A list of NSEC3Records from a given message.
-   * @return The matching NSEC3Record if one is present, null otherwise.
-   */
-  private NSEC3Record findMatchingNSEC3(Name name, Name zonename, List<SRRset> nsec3s) {
-    base32 b32 = new base32(base32.Alphabet.BASE32HEX, false, false);
-    for (SRRset set : nsec3s) {
-      try {
-        NSEC3Record nsec3 = (NSEC3Record) set.first();
-        byte[] hash = nsec3.hashName(name);
-        Name complete = new Name(b32.toString(hash), zonename);
-        if (complete.equals(nsec3.getName())) {
-          return nsec3;
-        }
-      } catch (NoSuchAlgorithmException | TextParseException e) {
-        logger.debug("Unrecognized NSEC3 in set:" + set, e);
-      }
-    }
-
-    return null;
-  }
-
-  /**
-   * Given a hash and a candidate NSEC3Record, determine if that NSEC3Record covers the hash. Covers
-   * specifically means that the hash is in between the owner and next hashes and does not equal
-   * either.
-   *
-   * @param nsec3 The candidate NSEC3Record.
-   * @param zonename The zone name.
-   * @param hash The precalculated hash.
-   * @return True if the NSEC3Record covers the hash.
-   */
-  private boolean nsec3Covers(NSEC3Record nsec3, Name zonename, byte[] hash) {
-    if (!new Name(nsec3.getName(), 1).equals(zonename)) {
-      return false;
-    }
-
-    byte[] owner =
-        new base32(base32.Alphabet.BASE32HEX, false, false)
-            .fromString(nsec3.getName().getLabelString(0));
-    byte[] next = nsec3.getNext();
-
-    // This is the "normal case: owner < next and owner < hash < next
-    ByteArrayComparator bac = new ByteArrayComparator();
-    if (bac.compare(owner, hash) < 0 && bac.compare(hash, next) < 0) {
-      return true;
-    }
-
-    // this is the end of zone case:
-    // next <= owner && (hash > owner || hash < next)
-    if (bac.compare(next, owner) <= 0
-        && (bac.compare(hash, owner) > 0 || bac.compare(hash, next) < 0)) {
-      return true;
-    }
-
-    // Otherwise, the NSEC3 does not cover the hash.
-    return false;
-  }
-
-  /**
-   * Given a pre-hashed name, find a covering NSEC3 from among a list of NSEC3s.
-   *
-   * @param name The name to consider.
-   * @param zonename The name of the zone.
-   * @param nsec3s The list of NSEC3s present in a message.
-   * @return A covering NSEC3 if one is present, null otherwise.
-   */
-  private NSEC3Record findCoveringNSEC3(Name name, Name zonename, List<SRRset> nsec3s) {
-    for (SRRset set : nsec3s) {
-      try {
-        NSEC3Record nsec3 = (NSEC3Record) set.first();
-        byte[] hash = nsec3.hashName(name);
-        if (this.nsec3Covers(nsec3, zonename, hash)) {
-          return nsec3;
-        }
-      } catch (NoSuchAlgorithmException e) {
-        logger.debug("Unrecognized NSEC3 in set:" + set, e);
-      }
-    }
-
-    return null;
-  }
-
   /**
    * Given a name and a list of NSEC3s, find the candidate closest encloser. This will be the first
    * ancestor of 'name' (including itself) to have a matching NSEC3 RR.
    *
    * @param name The name the start with.
    * @param zonename The name of the zone that the NSEC3s came from.
-   * @param nsec3s The list of NSEC3s.
+   * @param nsec3s The index of the NSEC3s.
    * @return A CEResponse containing the closest encloser name and the NSEC3 RR that matched it, or
    *     null if there wasn't one.
    */
-  private CEResponse findClosestEncloser(Name name, Name zonename, List<SRRset> nsec3s) {
+  private CEResponse findClosestEncloser(Name name, Name zonename, NSEC3Index nsec3s) {
     // This scans from longest name to shortest, so the first match we find
     // is the only viable candidate.
     // FIXME: modify so that the NSEC3 matching the zone apex need not be
     // present.
     while (name.labels() >= zonename.labels()) {
-      NSEC3Record nsec3 = this.findMatchingNSEC3(name, zonename, nsec3s);
+      NSEC3Record nsec3 = nsec3s.findMatching(name);
       if (nsec3 != null) {
         return new CEResponse(name, nsec3);
       }
@@ -305,11 +224,11 @@ final class NSEC3ValUtils {
    *
    * @param qname The qname in question.
    * @param zonename The name of the zone that the NSEC3 RRs come from.
-   * @param nsec3s The list of NSEC3s found the this response (already verified).
+   * @param nsec3s The index of the NSEC3s found the this response (already verified).
    * @return A CEResponse object which contains the closest encloser name and the NSEC3 that matches
    *     it.
    */
-  private CEResponse proveClosestEncloser(Name qname, Name zonename, List<SRRset> nsec3s) {
+  private CEResponse proveClosestEncloser(Name qname, Name zonename, NSEC3Index nsec3s) {
     CEResponse candidate = this.findClosestEncloser(qname, zonename, nsec3s);
     if (candidate == null) {
       logger.debug("proveClosestEncloser: could not find a candidate for the closest encloser.");
@@ -346,7 +265,7 @@ final class NSEC3ValUtils {
 
     // Otherwise, we need to show that the next closer name is covered.
     Name nextClosest = this.nextClosest(qname, candidate.closestEncloser);
-    candidate.ncNsec3 = this.findCoveringNSEC3(nextClosest, zonename, nsec3s);
+    candidate.ncNsec3 = nsec3s.findCovering(nextClosest);
     if (candidate.ncNsec3 == null) {
       logger.debug("Could not find proof that the closest encloser was the closest encloser");
       candidate.status = SecurityStatus.BOGUS;
@@ -358,64 +277,27 @@ final class NSEC3ValUtils {
   }
 
   private boolean validIterations(SRRset nsec, KeyCache keyCache) {
-    SRRset dnskeyRrset = keyCache.find(nsec.getSignerName(), nsec.getDClass());
+    KeyEntry dnskeyRrset = keyCache.find(nsec.getSignerName(), nsec.getDClass());
     // for now, we return the maximum iterations based simply on the key
     // algorithms that may have been used to sign the NSEC3 RRsets.
-    try {
-      for (Record r : dnskeyRrset.rrs()) {
-        DNSKEYRecord dnskey = (DNSKEYRecord) r;
-        int keysize;
-        switch (dnskey.getAlgorithm()) {
-          case Algorithm.RSAMD5:
-            return false; // obsoleted by rfc6725
-          case Algorithm.RSASHA1:
-          case Algorithm.RSASHA256:
-          case Algorithm.RSASHA512:
-          case Algorithm.RSA_NSEC3_SHA1:
-            keysize = ((RSAPublicKey) dnskey.getPublicKey()).getModulus().bitLength();
-            break;
-          case Algorithm.DSA:
-          case Algorithm.DSA_NSEC3_SHA1:
-            keysize = ((DSAPublicKey) dnskey.getPublicKey()).getParams().getP().bitLength();
-            break;
-          case Algorithm.ECDSAP256SHA256:
-          case Algorithm.ECDSAP384SHA384:
-            keysize =
-                ((ECPublicKey) dnskey.getPublicKey())
-                    .getParams()
-                    .getCurve()
-                    .getField()
-                    .getFieldSize();
-            break;
-          case Algorithm.ECC_GOST:
-            keysize = 512;
-            break;
-          case Algorithm.ED25519:
-            keysize = 256;
-            break;
-          case Algorithm.ED448:
-            keysize = 456;
-            break;
-          default:
-            return false;
-        }
-
-        Integer keyIters = this.maxIterations.floorKey(keysize);
-        if (keyIters == null) {
-          keyIters = this.maxIterations.firstKey();
-        }
+    for (Record r : dnskeyRrset.rrs()) {
+      int keysize = dnskeyRrset.getKeySize((DNSKEYRecord) r);
+      if (keysize < 0) {
+        return false;
+      }
 
-        keyIters = this.maxIterations.get(keyIters);
-        if (((NSEC3Record) nsec.first()).getIterations() > keyIters) {
-          return false;
-        }
+      Integer keyIters = this.maxIterations.floorKey(keysize);
+      if (keyIters == null) {
+        keyIters = this.maxIterations.firstKey();
       }
 
-      return true;
-    } catch (DNSSECException e) {
-      logger.error("Could not get public key from NSEC3 record", e);
-      return false;
+      keyIters = this.maxIterations.get(keyIters);
+      if (((NSEC3Record) nsec.first()).getIterations() > keyIters) {
+        return false;
+      }
     }
+
+    return true;
   }
 
   /**
@@ -485,9 +367,11 @@ final class NSEC3ValUtils {
       return SecurityStatus.BOGUS;
     }
 
+    NSEC3Index index = new NSEC3Index(nsec3s, zonename, this.hashCache);
+
     // First locate and prove the closest encloser to qname. We will use the
     // variant that fails if the closest encloser turns out to be qname.
-    CEResponse ce = this.proveClosestEncloser(qname, zonename, nsec3s);
+    CEResponse ce = this.proveClosestEncloser(qname, zonename, index);
 
     if (ce.status != SecurityStatus.SECURE) {
       logger.debug("proveNameError: failed to prove a closest encloser.");
@@ -498,7 +382,7 @@ final class NSEC3ValUtils {
     // prove
     // that the wildcard does not exist.
     Name wc = this.ceWildcard(ce.closestEncloser);
-    NSEC3Record nsec3 = this.findCoveringNSEC3(wc, zonename, nsec3s);
+    NSEC3Record nsec3 = index.findCovering(wc);
     if (nsec3 == null) {
       logger.debug("proveNameError: could not prove that the applicable wildcard did not exist.");
       return SecurityStatus.BOGUS;
@@ -541,7 +425,9 @@ final class NSEC3ValUtils {
       return SecurityStatus.BOGUS;
     }
 
-    NSEC3Record nsec3 = this.findMatchingNSEC3(qname, zonename, nsec3s);
+    NSEC3Index index = new NSEC3Index(nsec3s, zonename, this.hashCache);
+
+    NSEC3Record nsec3 = index.findMatching(qname);
     // Cases 1 & 2.
     if (nsec3 != null) {
       if (nsec3.hasType(qtype)) {
@@ -573,7 +459,7 @@ final class NSEC3ValUtils {
     // For cases 3 - 5, we need the proven closest encloser, and it can't
     // match qname. Although, at this point, we know that it won't since we
     // just checked that.
-    CEResponse ce = this.proveClosestEncloser(qname, zonename, nsec3s);
+    CEResponse ce = this.proveClosestEncloser(qname, zonename, index);
 
     // At this point, not finding a match or a proven closest encloser is a
     // problem.
@@ -589,7 +475,7 @@ final class NSEC3ValUtils {
 
     // Case 4:
     Name wc = this.ceWildcard(ce.closestEncloser);
-    nsec3 = this.findMatchingNSEC3(wc, zonename, nsec3s);
+    nsec3 = index.findMatching(wc);
     if (nsec3 != null) {
       if (nsec3.hasType(qtype)) {
         logger.debug("proveNodata: matching wildcard had qtype!");
@@ -656,6 +542,8 @@ final class NSEC3ValUtils {
       return SecurityStatus.BOGUS;
     }
 
+    NSEC3Index index = new NSEC3Index(nsec3s, zonename, this.hashCache);
+
     // We know what the (purported) closest encloser is by just looking at
     // the supposed generating wildcard.
     CEResponse candidate = new CEResponse(new Name(wildcard, 1), null);
@@ -663,7 +551,7 @@ final class NSEC3ValUtils {
     // Now we still need to prove that the original data did not exist.
     // Otherwise, we need to show that the next closer name is covered.
     Name nextClosest = this.nextClosest(qname, candidate.closestEncloser);
-    candidate.ncNsec3 = this.findCoveringNSEC3(nextClosest, zonename, nsec3s);
+    candidate.ncNsec3 = index.findCovering(nextClosest);
 
     if (candidate.ncNsec3 == null) {
       logger.debug(
@@ -702,8 +590,10 @@ final class NSEC3ValUtils {
       return SecurityStatus.BOGUS;
     }
 
+    NSEC3Index index = new NSEC3Index(nsec3s, zonename, this.hashCache);
+
     // Look for a matching NSEC3 to qname -- this is the normal NODATA case.
-    NSEC3Record nsec3 = this.findMatchingNSEC3(qname, zonename, nsec3s);
+    NSEC3Record nsec3 = index.findMatching(qname);
 
     if (nsec3 != null) {
       // If the matching NSEC3 has the SOA bit set, it is from the wrong
@@ -724,7 +614,7 @@ final class NSEC3ValUtils {
     }
 
     // Otherwise, we are probably in the opt-out case.
-    CEResponse ce = this.proveClosestEncloser(qname, zonename, nsec3s);
+    CEResponse ce = this.proveClosestEncloser(qname, zonename, index);
     if (ce.status != SecurityStatus.SECURE) {
       return SecurityStatus.BOGUS;
     }
@@ -0,0 +1,62 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import org.xbill.DNS.Name;
+
+/** Lookup key for caches that are indexed by an owner name and a DNS class. */
+final class NameClassKey {
+  private final Name name;
+  private final int dclass;
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param name The owner name.
+   * @param dclass The DNS class.
+   */
+  NameClassKey(Name name, int dclass) {
+    this.name = name;
+    this.dclass = dclass;
+  }
+
+  Name getName() {
+    return this.name;
+  }
+
+  int getDClass() {
+    return this.dclass;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof NameClassKey)) {
+      return false;
+    }
+
+    NameClassKey other = (NameClassKey) o;
+    return this.dclass == other.dclass && this.name.equals(other.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * this.name.hashCode() + this.dclass;
+  }
+
+  @Override
+  public String toString() {
+    return this.name + "/" + this.dclass;
+  }
+}
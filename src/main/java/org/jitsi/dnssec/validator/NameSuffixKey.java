@@ -0,0 +1,123 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.io.IOException;
+import org.xbill.DNS.DNSInput;
+import org.xbill.DNS.Name;
+
+/**
+ * Lookup key for caches that are searched for the closest enclosing name of a name and class. The
+ * key holds the canonical wire format of a name and an offset into it, so that a search can walk up
+ * the labels by moving the offset instead of creating a new {@link Name} and key for every label.
+ *
+ * <p>Keys that are stored in a map must not be moved, only the key of a search.
+ */
+final class NameSuffixKey {
+  private final byte[] wire;
+  private final int dclass;
+  private int offset;
+  private int hash;
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param name The owner name.
+   * @param dclass The DNS class.
+   */
+  NameSuffixKey(Name name, int dclass) {
+    this.wire = name.toWireCanonical();
+    this.dclass = dclass;
+    this.hash = this.computeHash();
+  }
+
+  /**
+   * Moves the key to the parent of the current name.
+   *
+   * @return <code>false</code> if the current name is the root and the key was not moved.
+   */
+  boolean toParent() {
+    int length = this.wire[this.offset];
+    if (length == 0) {
+      return false;
+    }
+
+    this.offset += length + 1;
+    this.hash = this.computeHash();
+    return true;
+  }
+
+  /**
+   * Gets the name that the key currently represents.
+   *
+   * @return The owner name.
+   */
+  Name getName() {
+    DNSInput in = new DNSInput(this.wire);
+    in.jump(this.offset);
+    try {
+      return new Name(in);
+    } catch (IOException e) {
+      // COVERAGE:OFF -> the wire format was created from a valid name
+      throw new IllegalStateException(e);
+    }
+  }
+
+  int getDClass() {
+    return this.dclass;
+  }
+
+  private int computeHash() {
+    int result = this.dclass;
+    for (int i = this.offset; i < this.wire.length; i++) {
+      result = 31 * result + this.wire[i];
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof NameSuffixKey)) {
+      return false;
+    }
+
+    NameSuffixKey other = (NameSuffixKey) o;
+    int length = this.wire.length - this.offset;
+    if (this.hash != other.hash
+        || this.dclass != other.dclass
+        || length != other.wire.length - other.offset) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (this.wire[this.offset + i] != other.wire[other.offset + i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public String toString() {
+    return this.getName() + "/" + this.dclass;
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.DNSInput;
+import org.xbill.DNS.DNSOutput;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+/**
+ * {@link KeyCache} that keeps the validated DNSKEY RRsets in wire format outside of the Java heap.
+ *
+ * <p>The records are stored in an arena of direct {@link ByteBuffer} segments that are written like
+ * a ring buffer. When the arena is full, the oldest segment is reused and all entries that were
+ * stored in it are evicted. The index from owner name to arena location and the (small) null and
+ * bad key entries remain on the heap. Found entries are decoded into {@link KeyEntry} objects, of
+ * which a small number is kept on the heap: the frequently used keys are then neither parsed again
+ * nor lose the public keys that were already decoded for their verification.
+ */
+public class OffHeapKeyCache implements KeyCache {
+  /** Name of the property that configures the size of the off-heap arena in bytes. */
+  public static final String ARENA_SIZE_CONFIG = "org.jitsi.dnssec.keycache.arena_size";
+
+  /** Name of the property that configures the number of decoded entries kept on the heap. */
+  public static final String DECODED_SIZE_CONFIG = "org.jitsi.dnssec.keycache.decoded_size";
+
+  private static final Logger logger = LoggerFactory.getLogger(OffHeapKeyCache.class);
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 900;
+  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+  private static final int DEFAULT_ARENA_SIZE = 16 * 1024 * 1024;
+  private static final int SEGMENT_COUNT = 16;
+  private static final int MIN_SEGMENT_SIZE = 1024;
+  private static final int DEFAULT_DECODED_SIZE = 100;
+
+  /** Guards all fields below. */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Maps the name and class of an entry to its location in the arena. */
+  private final Map<NameSuffixKey, Slot> index = new HashMap<>();
+
+  /** All slots in the order they were written, including replaced or expired slots. */
+  private final Deque<Slot> insertionOrder = new ArrayDeque<>();
+
+  /** The decoded entries of the most frequently used slots, by slot identity. */
+  private final ClockCache<Slot, KeyEntry> decoded = new ClockCache<>(DEFAULT_DECODED_SIZE);
+
+  /** The arena, allocated on the first store. */
+  private ByteBuffer[] segments;
+
+  private int currentSegment;
+  private int currentOffset;
+
+  /** This is the maximum TTL [s] that all key cache entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** This is the maximum number of entries that the key cache will hold. */
+  private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+  /** The total number of bytes of all segments. */
+  private int arenaSize = DEFAULT_ARENA_SIZE;
+
+  /**
+   * Initialize the cache. In addition to the properties described in {@link KeyCache#init}, this
+   * implementation recognizes:
+   *
+   * <dl>
+   *   <dt>org.jitsi.dnssec.keycache.arena_size
+   *   <dd>The number of bytes to allocate off-heap for the DNSKEY RRsets, at least 16 KiB. Changing
+   *       the size clears the cache.
+   *   <dt>org.jitsi.dnssec.keycache.decoded_size
+   *   <dd>The number of decoded entries that are kept on the heap, 0 decodes every lookup.
+   * </dl>
+   *
+   * @param config The configuration information.
+   * @throws IllegalArgumentException if the arena size is too small.
+   */
+  @Override
+  public void init(Properties config) {
+    if (config == null) {
+      return;
+    }
+
+    this.lock.writeLock().lock();
+    try {
+      String s = config.getProperty(MAX_TTL_CONFIG);
+      if (s != null) {
+        this.maxTtl = Long.parseLong(s);
+      }
+
+      s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+      if (s != null) {
+        this.maxCacheSize = Integer.parseInt(s);
+      }
+
+      s = config.getProperty(ARENA_SIZE_CONFIG);
+      if (s != null && Integer.parseInt(s) != this.arenaSize) {
+        int size = Integer.parseInt(s);
+        if (size < SEGMENT_COUNT * MIN_SEGMENT_SIZE) {
+          throw new IllegalArgumentException(
+              ARENA_SIZE_CONFIG + " must be at least " + SEGMENT_COUNT * MIN_SEGMENT_SIZE);
+        }
+
+        this.arenaSize = size;
+        this.segments = null;
+        this.index.clear();
+        this.insertionOrder.clear();
+        this.decoded.clear();
+      }
+
+      s = config.getProperty(DECODED_SIZE_CONFIG);
+      if (s != null) {
+        this.decoded.setMaxSize(Integer.parseInt(s));
+        this.decoded.clear();
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public KeyEntry find(Name n, int dclass) {
+    List<Slot> expired = null;
+    KeyEntry result = null;
+    long now = System.currentTimeMillis();
+    this.lock.readLock().lock();
+    try {
+      NameSuffixKey key = new NameSuffixKey(n, dclass);
+      do {
+        Slot slot = this.index.get(key);
+        if (slot != null) {
+          if (slot.expiration >= now) {
+            result = this.decode(slot, now);
+            break;
+          }
+
+          if (expired == null) {
+            expired = new ArrayList<>(1);
+          }
+
+          expired.add(slot);
+        }
+      } while (key.toParent());
+    } finally {
+      this.lock.readLock().unlock();
+    }
+
+    if (expired != null) {
+      this.lock.writeLock().lock();
+      try {
+        for (Slot slot : expired) {
+          this.index.remove(slot.key, slot);
+        }
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public void store(KeyEntry ke) {
+    if (!ke.isGood() && !ke.isNull() && !ke.isBad()) {
+      return;
+    }
+
+    if (ke.getType() != Type.DNSKEY) {
+      return;
+    }
+
+    byte[] data = ke.isGood() ? toWire(ke) : new byte[0];
+    long ttl = Math.min(ke.getTTL(), this.maxTtl);
+    Slot slot = new Slot(new NameSuffixKey(ke.getName(), ke.getDClass()));
+    slot.expiration = System.currentTimeMillis() + ttl * MILLISECONDS_PER_SECOND;
+    slot.length = data.length;
+    slot.ttl = ke.getTTL();
+    slot.bad = ke.isBad();
+    slot.badReason = ke.getBadReason();
+
+    this.lock.writeLock().lock();
+    try {
+      if (this.segments == null) {
+        this.segments = new ByteBuffer[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+          this.segments[i] = ByteBuffer.allocateDirect(this.arenaSize / SEGMENT_COUNT);
+        }
+
+        this.currentSegment = 0;
+        this.currentOffset = 0;
+      }
+
+      int segmentSize = this.segments[0].capacity();
+      if (data.length > segmentSize) {
+        logger.debug("DNSKEY RRset for {} is too large for the arena", ke.getName());
+        return;
+      }
+
+      if (this.currentOffset + data.length > segmentSize) {
+        this.currentSegment = (this.currentSegment + 1) % SEGMENT_COUNT;
+        this.currentOffset = 0;
+
+        // the slots of the reused segment are the oldest, i.e. at the head of the queue
+        while (!this.insertionOrder.isEmpty()
+            && this.insertionOrder.peekFirst().segment == this.currentSegment) {
+          Slot evicted = this.insertionOrder.pollFirst();
+          this.index.remove(evicted.key, evicted);
+        }
+      }
+
+      slot.segment = this.currentSegment;
+      slot.offset = this.currentOffset;
+      ByteBuffer target = this.segments[slot.segment].duplicate();
+      target.position(slot.offset);
+      target.put(data);
+      this.currentOffset += data.length;
+
+      this.index.put(slot.key, slot);
+      this.insertionOrder.offerLast(slot);
+      while (this.index.size() > this.maxCacheSize && !this.insertionOrder.isEmpty()) {
+        Slot evicted = this.insertionOrder.pollFirst();
+        this.index.remove(evicted.key, evicted);
+      }
+
+      // drop replaced and expired slots when they start to dominate the queue
+      if (this.insertionOrder.size() > 2 * this.index.size() + 1) {
+        this.insertionOrder.removeIf(s -> this.index.get(s.key) != s);
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public double getRemainingLifetime(Name n, int dclass) {
+    long now = System.currentTimeMillis();
+    this.lock.readLock().lock();
+    try {
+      Slot slot = this.index.get(new NameSuffixKey(n, dclass));
+      if (slot == null) {
+        return 1;
+      }
+
+      long ttl = Math.min(slot.ttl, this.maxTtl) * MILLISECONDS_PER_SECOND;
+      if (ttl <= 0 || slot.expiration < now) {
+        return 0;
+      }
+
+      return Math.min(1, (slot.expiration - now) / (double) ttl);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private static byte[] toWire(KeyEntry ke) {
+    List<Record> rrs = ke.rrs();
+    List<RRSIGRecord> sigs = ke.sigs();
+    DNSOutput out = new DNSOutput();
+    out.writeU16(rrs.size());
+    out.writeU16(sigs.size());
+    for (Record r : rrs) {
+      byte[] wire = r.toWire(Section.ANSWER);
+      out.writeU16(wire.length);
+      out.writeByteArray(wire);
+    }
+
+    for (RRSIGRecord r : sigs) {
+      byte[] wire = r.toWire(Section.ANSWER);
+      out.writeU16(wire.length);
+      out.writeByteArray(wire);
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Gets the decoded entry of a slot from the heap, or reads it from the arena. Replaced and
+   * evicted slots are no longer found in the index, so their decoded entries are never used again
+   * and simply age out. Must be called with the (read) lock held.
+   */
+  private KeyEntry decode(Slot slot, long now) {
+    if (this.decoded.getMaxSize() <= 0) {
+      return this.read(slot);
+    }
+
+    KeyEntry ke = this.decoded.get(slot, now);
+    if (ke == null) {
+      ke = this.read(slot);
+      if (ke != null) {
+        this.decoded.put(slot, ke, slot.expiration);
+      }
+    }
+
+    return ke;
+  }
+
+  /** Must be called with the (read) lock held. */
+  private KeyEntry read(Slot slot) {
+    NameSuffixKey key = slot.key;
+    if (slot.length == 0) {
+      KeyEntry ke =
+          slot.bad
+              ? KeyEntry.newBadKeyEntry(key.getName(), key.getDClass(), slot.ttl)
+              : KeyEntry.newNullKeyEntry(key.getName(), key.getDClass(), slot.ttl);
+      if (slot.badReason != null) {
+        ke.setBadReason(slot.badReason);
+      }
+
+      return ke;
+    }
+
+    byte[] data = new byte[slot.length];
+    ByteBuffer source = this.segments[slot.segment].duplicate();
+    source.position(slot.offset);
+    source.get(data);
+
+    try {
+      DNSInput in = new DNSInput(data);
+      int rrCount = in.readU16();
+      int sigCount = in.readU16();
+      SRRset rrset = new SRRset();
+      for (int i = 0; i < rrCount; i++) {
+        rrset.addRR(Record.fromWire(in.readByteArray(in.readU16()), Section.ANSWER));
+      }
+
+      for (int i = 0; i < sigCount; i++) {
+        rrset.addRR((RRSIGRecord) Record.fromWire(in.readByteArray(in.readU16()), Section.ANSWER));
+      }
+
+      rrset.setSecurityStatus(SecurityStatus.SECURE);
+      return KeyEntry.newKeyEntry(rrset);
+    } catch (IOException e) {
+      // COVERAGE:OFF -> the data was written by this class
+      logger.error("Corrupt DNSKEY RRset for {} in the arena", key.getName(), e);
+      return null;
+    }
+  }
+
+  /** Location and metadata of a cached entry in the arena. */
+  private static final class Slot {
+    private final NameSuffixKey key;
+    private int segment;
+    private int offset;
+    private int length;
+    private long expiration;
+    private long ttl;
+    private boolean bad;
+    private String badReason;
+
+    Slot(NameSuffixKey key) {
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import org.xbill.DNS.ExtendedFlags;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.OPTRecord;
+import org.xbill.DNS.Record;
+
+/** Lookup key of a query: the question and the flags that influence validation. */
+final class QueryKey {
+  private final Name name;
+  private final int type;
+  private final int dclass;
+  private final boolean cd;
+  private final boolean dnssecOk;
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param query The query.
+   */
+  QueryKey(Message query) {
+    Record q = query.getQuestion();
+    OPTRecord opt = query.getOPT();
+    this.name = q.getName();
+    this.type = q.getType();
+    this.dclass = q.getDClass();
+    this.cd = query.getHeader().getFlag(Flags.CD);
+    this.dnssecOk = opt != null && (opt.getFlags() & ExtendedFlags.DO) != 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof QueryKey)) {
+      return false;
+    }
+
+    QueryKey other = (QueryKey) o;
+    return this.type == other.type
+        && this.dclass == other.dclass
+        && this.cd == other.cd
+        && this.dnssecOk == other.dnssecOk
+        && this.name.equals(other.name);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = this.name.hashCode();
+    result = 31 * result + this.type;
+    result = 31 * result + this.dclass;
+    result = 31 * result + (this.cd ? 1 : 0);
+    return 31 * result + (this.dnssecOk ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return this.name + "/" + this.type + "/" + this.dclass;
+  }
+}
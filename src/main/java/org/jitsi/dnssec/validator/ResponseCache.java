@@ -0,0 +1,203 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.RRset;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+/**
+ * Cache for the final, validated responses of the {@link ValidatingResolver}. The cache is disabled
+ * unless a maximum size is configured.
+ *
+ * <p>Responses are indexed by the question and the CD and DO flags of the query. An entry expires
+ * with the shortest TTL of all records in the response (including the SOA minimum of negative
+ * responses), but never later than the expiration of any of its signatures. SERVFAIL responses,
+ * i.e. bogus answers, are not cached. The TTLs of a returned response are lowered by the time the
+ * response spent in the cache.
+ */
+public final class ResponseCache {
+  /** Name of the property that configures the maximum cache TTL. */
+  public static final String MAX_TTL_CONFIG = "org.jitsi.dnssec.responsecache.max_ttl";
+
+  /** Name of the property that configures the maximum cache size, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.responsecache.max_size";
+
+  private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 300;
+
+  /** The offset of the type, class and TTL fields after the owner name of a record. */
+  private static final int RDATA_OFFSET = 10;
+
+  private final ClockCache<QueryKey, Entry> cache;
+
+  /** This is the maximum TTL [s] that all cache entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** Creates a new, disabled instance of this class. */
+  ResponseCache() {
+    this.cache = new ClockCache<>(0);
+  }
+
+  /**
+   * Initialize the cache. This implementation recognizes the following configuration parameters:
+   *
+   * <dl>
+   *   <dt>org.jitsi.dnssec.responsecache.max_ttl
+   *   <dd>The maximum TTL to apply to any cache entry.
+   *   <dt>org.jitsi.dnssec.responsecache.max_size
+   *   <dd>The maximum number of entries that the cache will hold. The default of 0 disables the
+   *       cache.
+   * </dl>
+   *
+   * @param config The configuration information.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Determines if the cache is enabled.
+   *
+   * @return <code>true</code> if responses are cached.
+   */
+  boolean isEnabled() {
+    return this.cache.getMaxSize() > 0;
+  }
+
+  /**
+   * Gets a copy of a cached response for a query.
+   *
+   * @param query The query to answer.
+   * @param now The current time.
+   * @return A response with the ID of the query and the remaining TTLs, or <code>null</code> if
+   *     nothing is cached.
+   */
+  Message get(Message query, Instant now) {
+    Entry cached = this.cache.get(new QueryKey(query), now.toEpochMilli());
+    if (cached == null) {
+      return null;
+    }
+
+    Message response = cached.response.clone();
+    response.getHeader().setID(query.getHeader().getID());
+    long age = (now.toEpochMilli() - cached.stored) / MILLISECONDS_PER_SECOND;
+    if (age > 0) {
+      for (int section = Section.ANSWER; section <= Section.ADDITIONAL; section++) {
+        List<Record> records = new ArrayList<>(response.getSection(section));
+        response.removeAllRecords(section);
+        for (Record r : records) {
+          response.addRecord(hasTtl(r) ? withTtl(r, Math.max(0, r.getTTL() - age)) : r, section);
+        }
+      }
+    }
+
+    return response;
+  }
+
+  /** The validation reason is added with TTL 0, the OPT record has no TTL. */
+  private static boolean hasTtl(Record r) {
+    return r.getDClass() != ValidatingResolver.VALIDATION_REASON_QCLASS && r.getType() != Type.OPT;
+  }
+
+  private static Record withTtl(Record r, long ttl) {
+    byte[] wire = r.toWire(Section.ANSWER);
+    int rdataOffset = r.getName().length() + RDATA_OFFSET;
+    try {
+      return Record.newRecord(
+          r.getName(),
+          r.getType(),
+          r.getDClass(),
+          ttl,
+          Arrays.copyOfRange(wire, rdataOffset, wire.length));
+    } catch (IllegalArgumentException e) {
+      // COVERAGE:OFF -> the data was written by dnsjava
+      logger.error("Cannot copy {}", r, e);
+      return r;
+    }
+  }
+
+  /**
+   * Stores a copy of a response if it is cacheable.
+   *
+   * @param query The query that was sent.
+   * @param response The final response to the query.
+   * @param now The current time.
+   */
+  void put(Message query, Message response, Instant now) {
+    if (response.getRcode() != Rcode.NOERROR && response.getRcode() != Rcode.NXDOMAIN) {
+      return;
+    }
+
+    long ttl = this.maxTtl;
+    boolean hasRecords = false;
+    for (int section = Section.ANSWER; section <= Section.ADDITIONAL; section++) {
+      for (RRset set : response.getSectionRRsets(section)) {
+        if (!hasTtl(set.first())) {
+          continue;
+        }
+
+        hasRecords = true;
+        ttl = Math.min(ttl, set.getTTL());
+        if (set.getType() == Type.SOA) {
+          ttl = Math.min(ttl, ((SOARecord) set.first()).getMinimum());
+        }
+
+        for (RRSIGRecord sig : set.sigs()) {
+          ttl = Math.min(ttl, sig.getExpire().getEpochSecond() - now.getEpochSecond());
+        }
+      }
+    }
+
+    if (!hasRecords || ttl <= 0) {
+      return;
+    }
+
+    this.cache.put(
+        new QueryKey(query),
+        new Entry(response.clone(), now.toEpochMilli()),
+        now.toEpochMilli() + ttl * MILLISECONDS_PER_SECOND);
+  }
+
+  /** A cached response and the time [ms] when it was stored. */
+  private static final class Entry {
+    private final Message response;
+    private final long stored;
+
+    Entry(Message response, long stored) {
+      this.response = response;
+      this.stored = stored;
+    }
+  }
+}
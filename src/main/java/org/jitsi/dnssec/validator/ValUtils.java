@@ -133,6 +133,7 @@ public class ValUtils {
    *   <li>{@link #DIGEST_HARDEN_DOWNGRADE}
    *   <li>{@link #DIGEST_ENABLED}
    *   <li>{@link #ALGORITHM_ENABLED}
+   *   <li>{@link DnsSecVerifier#CACHE_SIZE_CONFIG}
    * </ul>
    *
    * @param config The configuration data for this module.
@@ -156,6 +157,7 @@ public class ValUtils {
     }
 
     this.digestHardenDowngrade = Boolean.parseBoolean(config.getProperty(DIGEST_HARDEN_DOWNGRADE));
+    this.verifier.init(config);
   }
 
   /**
@@ -286,22 +288,16 @@ public class ValUtils {
     }
 
     int favoriteDigestID = this.favoriteDSDigestID(dsRrset);
+    DnsKeyIndex keyIndex = new DnsKeyIndex(dnskeyRrset);
     for (Record dsr : dsRrset.rrs()) {
       DSRecord ds = (DSRecord) dsr;
       if (this.digestHardenDowngrade && ds.getDigestID() != favoriteDigestID) {
         continue;
       }
 
+      // Only look at DNSKEYs that match the basic criteria.
       DNSKEY:
-      for (Record dsnkeyr : dnskeyRrset.rrs()) {
-        DNSKEYRecord dnskey = (DNSKEYRecord) dsnkeyr;
-
-        // Skip DNSKEYs that don't match the basic criteria.
-        if (ds.getFootprint() != dnskey.getFootprint()
-            || ds.getAlgorithm() != dnskey.getAlgorithm()) {
-          continue;
-        }
-
+      for (DNSKEYRecord dnskey : keyIndex.get(ds.getAlgorithm(), ds.getFootprint())) {
         // Convert the candidate DNSKEY into a hash using the same DS
         // hash algorithm.
         DSRecord keyDigest = new DSRecord(Name.root, ds.getDClass(), 0, ds.getDigestID(), dnskey);
@@ -52,11 +52,17 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.jitsi.dnssec.R;
 import org.jitsi.dnssec.SMessage;
@@ -77,6 +83,7 @@ import org.xbill.DNS.Message;
 import org.xbill.DNS.NSECRecord;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.NameTooLongException;
+import org.xbill.DNS.RRset;
 import org.xbill.DNS.Rcode;
 import org.xbill.DNS.Record;
 import org.xbill.DNS.Resolver;
@@ -93,13 +100,51 @@ public class ValidatingResolver implements Resolver {
    */
   public static final int VALIDATION_REASON_QCLASS = 65280;
 
+  /**
+   * Name of the property that enables the concurrent verification of the RRsets of a response. The
+   * keys of all signed RRsets of a section are then looked up at once instead of one after another.
+   */
+  public static final String PARALLEL_RRSETS_CONFIG = "org.jitsi.dnssec.parallel_rrsets";
+
+  /**
+   * Name of the property that sends the DS and DNSKEY queries for all names between the trust
+   * anchor and the signer name at once when a key lookup starts, instead of one after the other.
+   */
+  public static final String PARALLEL_KEY_FETCH_CONFIG = "org.jitsi.dnssec.parallel_key_fetch";
+
+  /**
+   * Name of the property that configures for how many keys the {@link AuthenticationChain} is kept,
+   * 0 (the default) disables capturing the chains.
+   */
+  public static final String CHAIN_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.chain.max_size";
+
+  /**
+   * Name of the property that configures the fraction of its TTL before the expiration of a cached
+   * key at which a request for it starts to fetch and validate the key again in the background,
+   * e.g. 0.1 for the last 10%. Only keys that were found in the cache for at least three RRsets are
+   * refreshed. 0 (the default) disables refreshing keys ahead of their expiration, the value must
+   * be between 0 and 1.
+   */
+  public static final String KEY_REFRESH_AHEAD_CONFIG = "org.jitsi.dnssec.keycache.refresh_ahead";
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+
   private static final Logger logger = LoggerFactory.getLogger(ValidatingResolver.class);
 
   /** This is the TTL to use when a trust anchor priming query failed to validate. */
   private static final long DEFAULT_TA_BAD_KEY_TTL = 60;
 
+  /** The number of hits after which a cached key is considered in use and refreshed. */
+  private static final int KEY_REFRESH_MIN_HITS = 3;
+
+  /** A key is refreshed at most once within this time [s], failed refreshes are not repeated. */
+  private static final long KEY_REFRESH_INTERVAL = 60;
+
+  /** The bad key TTL doubles on repeated failures, up to 2^MAX_BAD_KEY_BACKOFF times. */
+  private static final int MAX_BAD_KEY_BACKOFF = 4;
+
   /** This is a cache of validated, but expirable DNSKEY rrsets. */
-  private KeyCache keyCache;
+  private final KeyCache keyCache;
 
   /**
    * A data structure holding all trust anchors. Trust anchors must be "primed" into the cache
@@ -119,6 +164,53 @@ public class ValidatingResolver implements Resolver {
   /** The clock used to validate messages. */
   private final Clock clock;
 
+  /** Optional cache of the final, validated responses. */
+  private final ResponseCache responseCache;
+
+  /** Optional cache of validated NSEC/NSEC3 ranges to synthesize negative responses. */
+  private final AggressiveNsecCache aggressiveNsecCache;
+
+  /** Cache of the delegations that are proven to be insecure. */
+  private final InsecureDelegationCache insecureDelegations;
+
+  /** Cache of validated DS RRsets and of proofs of their absence. */
+  private final DSCache dsCache;
+
+  /** Cache of the names that are known to be zone cuts or not. */
+  private final ZoneCutCache zoneCuts;
+
+  /** Whether the RRsets of a response section are verified concurrently. */
+  private boolean parallelRRsets;
+
+  /** The executor for the continuations that verify signatures and proofs. */
+  private volatile Executor executor = ForkJoinPool.commonPool();
+
+  /** Whether the queries of a key lookup are sent before their responses are needed. */
+  private boolean parallelKeyFetch;
+
+  /** The authentication chains of the keys in the key cache. */
+  private final ClockCache<NameClassKey, List<Record>> chains = new ClockCache<>(0);
+
+  /** The fraction of the TTL before the expiration of a cached key at which it is refreshed. */
+  private double keyRefreshAhead;
+
+  /** The keys that were refreshed recently, to retry failed refreshes only once per interval. */
+  private final ClockCache<NameClassKey, Boolean> refreshedKeys = new ClockCache<>(1000);
+
+  /** The number of hits of the cached keys, to refresh only the keys that are in use. */
+  private final ClockCache<NameClassKey, AtomicInteger> keyHits = new ClockCache<>(1000);
+
+  /** The number of consecutive failures to validate the keys of a name, for the bad key TTL. */
+  private final ClockCache<NameClassKey, Integer> keyFailures = new ClockCache<>(1000);
+
+  /** The key lookups that are in progress, shared by all RRsets signed by the same zone. */
+  private final Map<NameClassKey, CompletableFuture<KeyEntry>> pendingKeyLookups =
+      new ConcurrentHashMap<>();
+
+  /** The queries that are sent and validated, shared by identical queries that arrive meanwhile. */
+  private final Map<QueryKey, CompletableFuture<Message>> pendingQueries =
+      new ConcurrentHashMap<>();
+
   /**
    * Creates a new instance of this class.
    *
@@ -137,22 +229,67 @@ public class ValidatingResolver implements Resolver {
    * @param clock the Clock to validate messages.
    */
   public ValidatingResolver(Resolver headResolver, Clock clock) {
+    this(headResolver, clock, new InMemoryKeyCache());
+  }
+
+  /**
+   * Creates a new instance of this class.
+   *
+   * @param headResolver The resolver to which queries for DS, DNSKEY and referring CNAME records
+   *     are sent.
+   * @param clock the Clock to validate messages.
+   * @param keyCache The cache for validated DNSKEY RRsets. The cache can be shared with other
+   *     resolver instances, it is initialized again by {@link #init(Properties)}.
+   */
+  public ValidatingResolver(Resolver headResolver, Clock clock, KeyCache keyCache) {
     this.headResolver = headResolver;
     this.clock = clock;
     headResolver.setEDNS(0, 0, ExtendedFlags.DO);
     headResolver.setIgnoreTruncation(false);
 
-    this.keyCache = new KeyCache();
+    this.keyCache = keyCache;
     this.valUtils = new ValUtils();
     this.n3valUtils = new NSEC3ValUtils();
     this.trustAnchors = new TrustAnchorStore();
+    this.responseCache = new ResponseCache();
+    this.aggressiveNsecCache = new AggressiveNsecCache(this.n3valUtils);
+    this.insecureDelegations = new InsecureDelegationCache();
+    this.dsCache = new DSCache();
+    this.zoneCuts = new ZoneCutCache();
+  }
+
+  /**
+   * Creates a resolver that validates against an authentication chain instead of querying the keys.
+   * It shares the configuration and the trust anchors with another resolver, but not its caches.
+   *
+   * @param parent The resolver with the configuration and the trust anchors.
+   * @param chain The chain with the DS and DNSKEY records.
+   */
+  private ValidatingResolver(ValidatingResolver parent, AuthenticationChain chain) {
+    this.headResolver = new AuthenticationChainResolver(chain);
+    this.clock = parent.clock;
+    this.keyCache = new InMemoryKeyCache();
+    this.valUtils = parent.valUtils;
+    this.n3valUtils = parent.n3valUtils;
+    this.trustAnchors = parent.trustAnchors;
+    this.responseCache = new ResponseCache();
+    this.aggressiveNsecCache = new AggressiveNsecCache(this.n3valUtils);
+    this.insecureDelegations = new InsecureDelegationCache();
+    this.dsCache = new DSCache();
+    this.zoneCuts = new ZoneCutCache();
+    this.executor = parent.executor;
+    this.parallelRRsets = parent.parallelRRsets;
   }
 
   // ---------------- Module Initialization -------------------
 
   /**
-   * Initialize the module. The only recognized configuration value is
-   * <tt>org.jitsi.dnssec.trust_anchor_file</tt>.
+   * Initialize the module. The configuration is passed on to the key cache, the response cache, the
+   * aggressive NSEC cache, the insecure delegation cache, the DS cache, the zone cut cache and the
+   * validation utilities. The values recognized directly are
+   * <tt>org.jitsi.dnssec.trust_anchor_file</tt>, {@link #PARALLEL_RRSETS_CONFIG}, {@link
+   * #PARALLEL_KEY_FETCH_CONFIG}, {@link #CHAIN_CACHE_SIZE_CONFIG} and {@link
+   * #KEY_REFRESH_AHEAD_CONFIG}.
    *
    * @param config The configuration data for this module.
    * @throws IOException When the file specified in the config does not exist or cannot be read.
@@ -161,6 +298,25 @@ public class ValidatingResolver implements Resolver {
     this.keyCache.init(config);
     this.n3valUtils.init(config);
     this.valUtils.init(config);
+    this.responseCache.init(config);
+    this.aggressiveNsecCache.init(config);
+    this.insecureDelegations.init(config);
+    this.dsCache.init(config);
+    this.zoneCuts.init(config);
+    this.parallelRRsets = Boolean.parseBoolean(config.getProperty(PARALLEL_RRSETS_CONFIG));
+    this.parallelKeyFetch = Boolean.parseBoolean(config.getProperty(PARALLEL_KEY_FETCH_CONFIG));
+    String chainCacheSize = config.getProperty(CHAIN_CACHE_SIZE_CONFIG);
+    if (chainCacheSize != null) {
+      this.chains.setMaxSize(Integer.parseInt(chainCacheSize));
+      this.chains.clear();
+    }
+    double refreshAhead = Double.parseDouble(config.getProperty(KEY_REFRESH_AHEAD_CONFIG, "0"));
+    if (!(refreshAhead >= 0 && refreshAhead <= 1)) {
+      throw new IllegalArgumentException(
+          KEY_REFRESH_AHEAD_CONFIG + " must be between 0 and 1, got " + refreshAhead);
+    }
+
+    this.keyRefreshAhead = refreshAhead;
 
     // Load trust anchors
     String s = config.getProperty("org.jitsi.dnssec.trust_anchor_file");
@@ -224,6 +380,11 @@ public class ValidatingResolver implements Resolver {
     if (currentRrset.size() > 0) {
       this.trustAnchors.store(currentRrset);
     }
+
+    // a new trust anchor can make a delegation below it secure
+    this.insecureDelegations.clear();
+    this.dsCache.clear();
+    this.zoneCuts.clear();
   }
 
   /**
@@ -235,6 +396,62 @@ public class ValidatingResolver implements Resolver {
     return this.trustAnchors;
   }
 
+  /**
+   * Sets the executor on which the validation continues after the responses for DNSKEY, DS and
+   * authority section queries arrived. This is where most signatures and NSEC/NSEC3 proofs are
+   * verified. The default is {@link ForkJoinPool#commonPool()}.
+   *
+   * @param executor The executor for the CPU-bound validation work.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = Objects.requireNonNull(executor, "executor");
+  }
+
+  /**
+   * Gets the executor on which the validation work runs.
+   *
+   * @return The executor set by {@link #setExecutor(Executor)}.
+   */
+  public Executor getExecutor() {
+    return this.executor;
+  }
+
+  /**
+   * Gets the cache of NSEC3 owner name hashes, e.g. to monitor its hit and miss counts.
+   *
+   * @return The NSEC3 hash cache of this resolver.
+   */
+  public NSEC3HashCache getNsec3HashCache() {
+    return this.n3valUtils.getHashCache();
+  }
+
+  /**
+   * Gets the cache of the delegations that are proven to be insecure, e.g. to monitor its size.
+   *
+   * @return The insecure delegation cache of this resolver.
+   */
+  public InsecureDelegationCache getInsecureDelegationCache() {
+    return this.insecureDelegations;
+  }
+
+  /**
+   * Gets the cache of validated DS RRsets, e.g. to monitor its size.
+   *
+   * @return The DS cache of this resolver.
+   */
+  public DSCache getDSCache() {
+    return this.dsCache;
+  }
+
+  /**
+   * Gets the cache of names that are known to be zone cuts or not, e.g. to monitor its size.
+   *
+   * @return The zone cut cache of this resolver.
+   */
+  public ZoneCutCache getZoneCutCache() {
+    return this.zoneCuts;
+  }
+
   /**
    * For messages that are not referrals, if the chase reply contains an unsigned NS record in the
    * authority section it could have been inserted by a (BIND) forwarder that thinks the zone is
@@ -291,18 +508,23 @@ public class ValidatingResolver implements Resolver {
     Map<Name, Name> wcs = new HashMap<>(1);
     List<SRRset> nsec3s = new ArrayList<>(0);
     List<SRRset> nsecs = new ArrayList<>(0);
+    SectionVerifications answer =
+        new SectionVerifications(response.getSectionRRsets(Section.ANSWER));
+    SectionVerifications authority =
+        new SectionVerifications(response.getSectionRRsets(Section.AUTHORITY));
 
-    return this.validateAnswerAndGetWildcards(response, request.getQuestion().getType(), wcs)
-        .thenCompose(
+    return this.validateAnswerAndGetWildcards(
+            response, request.getQuestion().getType(), wcs, answer)
+        .thenComposeAsync(
             success -> {
               if (success) {
                 // validate the AUTHORITY section as well - this will generally be the
                 // NS rrset (which could be missing, no problem)
-                int[] sections;
+                SectionVerifications[] sections;
                 if (request.getQuestion().getType() == Type.ANY) {
-                  sections = new int[] {Section.ANSWER, Section.AUTHORITY};
+                  sections = new SectionVerifications[] {answer, authority};
                 } else {
-                  sections = new int[] {Section.AUTHORITY};
+                  sections = new SectionVerifications[] {authority};
                 }
 
                 return this.validatePositiveResponseRecursive(
@@ -316,7 +538,8 @@ public class ValidatingResolver implements Resolver {
               }
 
               return completedFuture(false);
-            })
+            },
+            this.executor)
         .thenAccept(
             success -> {
               if (!success) {
@@ -389,7 +612,7 @@ public class ValidatingResolver implements Resolver {
       Map<Name, Name> wcs,
       List<SRRset> nsec3s,
       List<SRRset> nsecs,
-      int[] sections,
+      SectionVerifications[] sections,
       AtomicInteger sectionIndex,
       AtomicInteger setIndex) {
     // reached the end of the sections to validate, end recursion, success
@@ -397,30 +620,29 @@ public class ValidatingResolver implements Resolver {
       return completedFuture(true);
     }
 
-    List<SRRset> sectionRRsets = response.getSectionRRsets(sections[sectionIndex.get()]);
+    SectionVerifications section = sections[sectionIndex.get()];
 
     // reached the end of the rrset in the current section, advance to next section
-    if (setIndex.get() >= sectionRRsets.size()) {
+    if (setIndex.get() >= section.size()) {
       sectionIndex.getAndIncrement();
       setIndex.set(0);
       return this.validatePositiveResponseRecursive(
           response, wcs, nsec3s, nsecs, sections, sectionIndex, setIndex);
     }
 
-    SRRset set = sectionRRsets.get(setIndex.getAndIncrement());
-    return this.prepareFindKey(set)
-        .thenCompose(
-            ke -> {
-              JustifiedSecStatus kve = ke.validateKeyFor(set.getSignerName());
-              if (kve != null) {
-                kve.applyToResponse(response);
+    SRRset set = section.getSet(setIndex.get());
+    return section
+        .verify(setIndex.getAndIncrement())
+        .thenComposeAsync(
+            v -> {
+              if (v.keyStatus != null) {
+                v.keyStatus.applyToResponse(response);
                 return completedFuture(false);
               }
 
-              SecurityStatus status = this.valUtils.verifySRRset(set, ke, this.clock.instant());
               // If anything in the authority section fails to be secure, we
               // have a bad message.
-              if (status != SecurityStatus.SECURE) {
+              if (v.status != SecurityStatus.SECURE) {
                 response.setBogus(R.get("failed.authority.positive", set));
                 return completedFuture(false);
               }
@@ -435,16 +657,22 @@ public class ValidatingResolver implements Resolver {
 
               return this.validatePositiveResponseRecursive(
                   response, wcs, nsec3s, nsecs, sections, sectionIndex, setIndex);
-            });
+            },
+            this.executor);
   }
 
   private CompletionStage<Boolean> validateAnswerAndGetWildcards(
-      SMessage response, int qtype, Map<Name, Name> wcs) {
-    return this.validateAnswerAndGetWildcardsRecursive(response, qtype, wcs, new AtomicInteger(0));
+      SMessage response, int qtype, Map<Name, Name> wcs, SectionVerifications answer) {
+    return this.validateAnswerAndGetWildcardsRecursive(
+        response, qtype, wcs, answer, new AtomicInteger(0));
   }
 
   private CompletionStage<Boolean> validateAnswerAndGetWildcardsRecursive(
-      SMessage response, int qtype, Map<Name, Name> wcs, AtomicInteger setIndex) {
+      SMessage response,
+      int qtype,
+      Map<Name, Name> wcs,
+      SectionVerifications answer,
+      AtomicInteger setIndex) {
     // validate the ANSWER section - this will be the answer itself
     List<SRRset> sectionRRsets = response.getSectionRRsets(Section.ANSWER);
 
@@ -455,18 +683,17 @@ public class ValidatingResolver implements Resolver {
 
     SRRset set = sectionRRsets.get(setIndex.get());
     // Verify the answer rrset.
-    return this.prepareFindKey(set)
-        .thenCompose(
-            ke -> {
-              JustifiedSecStatus kve = ke.validateKeyFor(set.getSignerName());
-              if (kve != null) {
-                kve.applyToResponse(response);
+    return answer
+        .verify(setIndex.get())
+        .thenComposeAsync(
+            v -> {
+              if (v.keyStatus != null) {
+                v.keyStatus.applyToResponse(response);
                 return completedFuture(false);
               }
 
-              SecurityStatus status = this.valUtils.verifySRRset(set, ke, this.clock.instant());
               // If the answer rrset failed to validate, then this message is BAD
-              if (status != SecurityStatus.SECURE) {
+              if (v.status != SecurityStatus.SECURE) {
                 response.setBogus(R.get("failed.answer.positive", set));
                 return completedFuture(false);
               }
@@ -526,8 +753,10 @@ public class ValidatingResolver implements Resolver {
               }
 
               setIndex.getAndIncrement();
-              return this.validateAnswerAndGetWildcardsRecursive(response, qtype, wcs, setIndex);
-            });
+              return this.validateAnswerAndGetWildcardsRecursive(
+                  response, qtype, wcs, answer, setIndex);
+            },
+            this.executor);
   }
 
   /**
@@ -563,7 +792,9 @@ public class ValidatingResolver implements Resolver {
 
     // validate the AUTHORITY section
     Name qname = intermediateQname;
-    return this.validateNodataResponseRecursive(response, new AtomicInteger(0))
+    SectionVerifications authority =
+        new SectionVerifications(response.getSectionRRsets(Section.AUTHORITY));
+    return this.validateNodataResponseRecursive(response, authority, new AtomicInteger(0))
         .handleAsync(
             (result, ex) -> {
               if (ex != null) {
@@ -645,33 +876,34 @@ public class ValidatingResolver implements Resolver {
               logger.trace("successfully validated NODATA response");
               response.setStatus(SecurityStatus.SECURE);
               return null;
-            });
+            },
+            this.executor);
   }
 
   private CompletionStage<Void> validateNodataResponseRecursive(
-      SMessage response, AtomicInteger setIndex) {
-    if (setIndex.get() >= response.getSectionRRsets(Section.AUTHORITY).size()) {
+      SMessage response, SectionVerifications authority, AtomicInteger setIndex) {
+    if (setIndex.get() >= authority.size()) {
       return completedFuture(null);
     }
 
-    SRRset set = response.getSectionRRsets(Section.AUTHORITY).get(setIndex.getAndIncrement());
-    return this.prepareFindKey(set)
+    SRRset set = authority.getSet(setIndex.get());
+    return authority
+        .verify(setIndex.getAndIncrement())
         .thenComposeAsync(
-            ke -> {
-              JustifiedSecStatus kve = ke.validateKeyFor(set.getSignerName());
-              if (kve != null) {
-                kve.applyToResponse(response);
-                return this.failedFuture(new Exception(kve.reason));
+            v -> {
+              if (v.keyStatus != null) {
+                v.keyStatus.applyToResponse(response);
+                return this.failedFuture(new Exception(v.keyStatus.reason));
               }
 
-              SecurityStatus status = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              if (status != SecurityStatus.SECURE) {
+              if (v.status != SecurityStatus.SECURE) {
                 response.setBogus(R.get("failed.authority.nodata", set));
                 return this.failedFuture(new Exception("failed.authority.nodata"));
               }
 
-              return this.validateNodataResponseRecursive(response, setIndex);
-            });
+              return this.validateNodataResponseRecursive(response, authority, setIndex);
+            },
+            this.executor);
   }
 
   private <T> CompletionStage<T> failedFuture(Throwable e) {
@@ -711,7 +943,9 @@ public class ValidatingResolver implements Resolver {
 
     // validate the AUTHORITY section
     Name qname = intermediateQname;
-    return this.validateNameErrorResponseRecursive(response, new AtomicInteger(0))
+    SectionVerifications authority =
+        new SectionVerifications(response.getSectionRRsets(Section.AUTHORITY));
+    return this.validateNameErrorResponseRecursive(response, authority, new AtomicInteger(0))
         .thenComposeAsync(
             v -> {
               // Validate the authority section -- all RRsets in the authority section
@@ -804,36 +1038,121 @@ public class ValidatingResolver implements Resolver {
               logger.trace("successfully validated NAME ERROR response.");
               response.setStatus(SecurityStatus.SECURE);
               return completedFuture(null);
-            })
+            },
+            this.executor)
         .exceptionally(ex -> null);
   }
 
   private CompletionStage<Void> validateNameErrorResponseRecursive(
-      SMessage response, AtomicInteger setIndex) {
-    if (setIndex.get() >= response.getSectionRRsets(Section.AUTHORITY).size()) {
+      SMessage response, SectionVerifications authority, AtomicInteger setIndex) {
+    if (setIndex.get() >= authority.size()) {
       return completedFuture(null);
     }
 
-    SRRset set = response.getSectionRRsets(Section.AUTHORITY).get(setIndex.getAndIncrement());
-    return this.prepareFindKey(set)
-        .thenCompose(
-            ke -> {
-              JustifiedSecStatus kve = ke.validateKeyFor(set.getSignerName());
-              if (kve != null) {
-                kve.applyToResponse(response);
-                return this.failedFuture(new Exception(kve.reason));
+    SRRset set = authority.getSet(setIndex.get());
+    return authority
+        .verify(setIndex.getAndIncrement())
+        .thenComposeAsync(
+            v -> {
+              if (v.keyStatus != null) {
+                v.keyStatus.applyToResponse(response);
+                return this.failedFuture(new Exception(v.keyStatus.reason));
               }
 
-              SecurityStatus status = this.valUtils.verifySRRset(set, ke, this.clock.instant());
-              if (status != SecurityStatus.SECURE) {
+              if (v.status != SecurityStatus.SECURE) {
                 response.setBogus(R.get("failed.nxdomain.authority", set));
                 return this.failedFuture(new Exception("failed.nxdomain.authority"));
               }
 
-              return this.validateNameErrorResponseRecursive(response, setIndex);
+              return this.validateNameErrorResponseRecursive(response, authority, setIndex);
+            },
+            this.executor);
+  }
+
+  /**
+   * Finds the key for an RRset and verifies the RRset with it.
+   *
+   * @param set The RRset to verify.
+   * @return The result of the key validation and the verification.
+   */
+  private CompletionStage<Verification> verifyRRset(SRRset set) {
+    return this.prepareFindKey(set)
+        .thenApply(
+            ke -> {
+              JustifiedSecStatus kve = ke.validateKeyFor(set.getSignerName());
+              if (kve != null) {
+                return new Verification(kve, null);
+              }
+
+              return new Verification(
+                  null, this.valUtils.verifySRRset(set, ke, this.clock.instant()));
             });
   }
 
+  /** The outcome of {@link #verifyRRset(SRRset)}. */
+  private static final class Verification {
+    /** The reason why the key cannot be used, <code>null</code> if the RRset was verified. */
+    private final JustifiedSecStatus keyStatus;
+
+    /** The result of the verification, <code>null</code> if the key cannot be used. */
+    private final SecurityStatus status;
+
+    Verification(JustifiedSecStatus keyStatus, SecurityStatus status) {
+      this.keyStatus = keyStatus;
+      this.status = status;
+    }
+  }
+
+  /**
+   * The verifications of the RRsets of a response section. By default an RRset is only verified
+   * when its result is requested, i.e. after the previous RRset was processed and found to be
+   * secure. If {@link #PARALLEL_RRSETS_CONFIG} is enabled, the verification of all signed RRsets
+   * starts at once. The results are still processed in the order of the section, so the first RRset
+   * that fails determines the status and reason of the response.
+   */
+  private final class SectionVerifications {
+    private final List<SRRset> sets;
+    private final List<CompletionStage<Verification>> started;
+
+    SectionVerifications(List<SRRset> sets) {
+      this.sets = sets;
+      this.started = new ArrayList<>(Collections.nCopies(sets.size(), null));
+      if (!ValidatingResolver.this.parallelRRsets || sets.size() < 2) {
+        return;
+      }
+
+      for (int i = 0; i < sets.size(); i++) {
+        // unsigned RRsets, e.g. a CNAME synthesized from a DNAME, are only looked at in order
+        SRRset set = sets.get(i);
+        if (set.getSignerName() != null) {
+          try {
+            this.started.set(
+                i,
+                CompletableFuture.supplyAsync(
+                        () -> ValidatingResolver.this.verifyRRset(set),
+                        ValidatingResolver.this.executor)
+                    .thenCompose(v -> v));
+          } catch (RuntimeException e) {
+            this.started.set(i, ValidatingResolver.this.failedFuture(e));
+          }
+        }
+      }
+    }
+
+    int size() {
+      return this.sets.size();
+    }
+
+    SRRset getSet(int index) {
+      return this.sets.get(index);
+    }
+
+    CompletionStage<Verification> verify(int index) {
+      CompletionStage<Verification> v = this.started.get(index);
+      return v != null ? v : ValidatingResolver.this.verifyRRset(this.sets.get(index));
+    }
+  }
+
   private CompletionStage<SMessage> sendRequest(Message request) {
     Record q = request.getQuestion();
     logger.trace(
@@ -858,6 +1177,14 @@ public class ValidatingResolver implements Resolver {
 
     if (state.signerName == null) {
       state.signerName = rrset.getName();
+    } else {
+      state.signed = true;
+    }
+
+    // everything below a delegation without DS is insecure, no need for the keys
+    KeyEntry insecure = this.insecureDelegations.find(state.signerName, state.qclass);
+    if (insecure != null) {
+      return completedFuture(insecure);
     }
 
     SRRset trustAnchorRRset = this.trustAnchors.find(state.signerName, rrset.getDClass());
@@ -871,19 +1198,245 @@ public class ValidatingResolver implements Resolver {
     state.keyEntry = this.keyCache.find(state.signerName, rrset.getDClass());
     if (state.keyEntry == null
         || (!state.keyEntry.getName().equals(state.signerName) && state.keyEntry.isGood())) {
-      // start the FINDKEY phase with the trust anchor
-      state.dsRRset = trustAnchorRRset;
-      state.keyEntry = null;
-      state.currentDSKeyName = new Name(trustAnchorRRset.getName(), 1);
+      // start the FINDKEY phase with the closest cached key or the trust anchor
+      this.startAtClosestKey(state, trustAnchorRRset, state.keyEntry);
+      return this.findKeyOnce(state);
+    }
 
-      // and otherwise, don't continue processing this event.
-      // (it will be reactivated when the priming query returns).
-      return this.processFindKey(state).thenApply(v -> state.keyEntry);
+    if (this.keyRefreshAhead > 0 && !state.keyEntry.isBad()) {
+      this.refreshKey(state, trustAnchorRRset);
     }
 
     return completedFuture(state.keyEntry);
   }
 
+  /**
+   * Starts the FINDKEY phase with a validated key of an ancestor of the signer name, so that only
+   * the DS and DNSKEY RRsets below it are fetched. The phase starts with the trust anchor if there
+   * is no such key, if it is above the trust anchor, or if the authentication chain is captured and
+   * the chain of the key is not available.
+   *
+   * @param state The state of the key finding phase to start.
+   * @param trustAnchorRRset The trust anchor of the signer name.
+   * @param closest The cached key that is closest to the signer name, can be <code>null</code>.
+   */
+  private void startAtClosestKey(FindKeyState state, SRRset trustAnchorRRset, KeyEntry closest) {
+    if (closest == null
+        || !closest.isGood()
+        || closest.getName().labels() < trustAnchorRRset.getName().labels()) {
+      this.startAtTrustAnchor(state, trustAnchorRRset);
+      return;
+    }
+
+    if (this.chains.getMaxSize() > 0) {
+      List<Record> chain =
+          this.chains.get(
+              new NameClassKey(closest.getName(), closest.getDClass()), System.currentTimeMillis());
+      if (chain == null) {
+        this.startAtTrustAnchor(state, trustAnchorRRset);
+        return;
+      }
+
+      state.chain = new ArrayList<>(chain);
+    }
+
+    logger.trace("findKey: resuming at cached key {}", closest.getName());
+    state.dsRRset = null;
+    state.keyEntry = closest;
+    state.currentDSKeyName = null;
+  }
+
+  private void startAtTrustAnchor(FindKeyState state, SRRset trustAnchorRRset) {
+    state.dsRRset = trustAnchorRRset;
+    state.keyEntry = null;
+    state.currentDSKeyName = new Name(trustAnchorRRset.getName(), 1);
+    if (this.chains.getMaxSize() > 0) {
+      state.chain = new ArrayList<>();
+    }
+  }
+
+  /**
+   * Counts a hit of a cached key and fetches and validates the key again in the background if it is
+   * about to expire and was hit at least {@link #KEY_REFRESH_MIN_HITS} times. The request that hit
+   * the key continues with the cached entry, the refreshed entry replaces it in the key cache when
+   * the new lookup completes.
+   *
+   * @param cached The state of the key lookup that was answered from the cache.
+   * @param trustAnchorRRset The trust anchor of the signer name.
+   */
+  private void refreshKey(FindKeyState cached, SRRset trustAnchorRRset) {
+    KeyEntry ke = cached.keyEntry;
+    long now = System.currentTimeMillis();
+    NameClassKey key = new NameClassKey(ke.getName(), ke.getDClass());
+    AtomicInteger hits = this.keyHits.get(key, now);
+    if (hits == null) {
+      // concurrent first hits may replace each other's counter, that only loses a hit
+      hits = new AtomicInteger();
+      this.keyHits.put(key, hits, now + ke.getTTL() * MILLISECONDS_PER_SECOND);
+    }
+
+    if (hits.incrementAndGet() < KEY_REFRESH_MIN_HITS
+        || this.keyCache.getRemainingLifetime(ke.getName(), ke.getDClass())
+            > this.keyRefreshAhead) {
+      return;
+    }
+
+    if (this.refreshedKeys.get(key, now) != null) {
+      return;
+    }
+
+    this.refreshedKeys.put(key, Boolean.TRUE, now + KEY_REFRESH_INTERVAL * MILLISECONDS_PER_SECOND);
+
+    // the refreshed key must be used again before it is refreshed once more
+    this.keyHits.remove(key);
+    logger.trace("refreshing key {} ahead of its expiration", ke.getName());
+    FindKeyState state = new FindKeyState();
+    state.signerName = cached.signerName;
+    state.signed = ke.isGood();
+    state.qclass = cached.qclass;
+    KeyEntry parent = null;
+    if (ke.getName().labels() > 1) {
+      parent = this.keyCache.find(new Name(ke.getName(), 1), ke.getDClass());
+    }
+
+    this.startAtClosestKey(state, trustAnchorRRset, parent);
+
+    // not on the thread of the request, it must not wait for the refresh
+    this.executor.execute(
+        () ->
+            this.findKeyOnce(state)
+                .whenComplete(
+                    (refreshed, ex) -> {
+                      if (ex != null) {
+                        logger.debug("failed to refresh key {}", ke.getName(), ex);
+                      }
+                    }));
+  }
+
+  /**
+   * Runs the FINDKEY phase unless a lookup for the same signer name and class is already in
+   * progress, in which case the result of that lookup is used.
+   *
+   * @param state The state associated with the key finding phase to start.
+   * @return The key entry that was found.
+   */
+  private CompletionStage<KeyEntry> findKeyOnce(FindKeyState state) {
+    NameClassKey key = new NameClassKey(state.signerName, state.qclass);
+    CompletableFuture<KeyEntry> lookup = new CompletableFuture<>();
+    CompletableFuture<KeyEntry> pending = this.pendingKeyLookups.putIfAbsent(key, lookup);
+    if (pending != null) {
+      logger.trace("joining key lookup for {}", state.signerName);
+      return pending;
+    }
+
+    CompletionStage<Void> found;
+    try {
+      if (this.parallelKeyFetch) {
+        this.prefetchKeys(state);
+      }
+
+      found = this.processFindKey(state);
+    } catch (RuntimeException e) {
+      found = this.failedFuture(e);
+    }
+
+    found.whenComplete(
+        (v, ex) -> {
+          if (ex == null && state.keyEntry != null) {
+            this.storeKeyOutcome(state.keyEntry);
+          }
+
+          // the key is in the cache now, later lookups must not join this one anymore
+          this.pendingKeyLookups.remove(key, lookup);
+          if (ex != null) {
+            lookup.completeExceptionally(ex);
+          } else {
+            lookup.complete(state.keyEntry);
+          }
+        });
+    return lookup;
+  }
+
+  /**
+   * Caches a bad key entry so that the lookups of a broken zone are not repeated for every query.
+   * The entry is cached for {@link #DEFAULT_TA_BAD_KEY_TTL}, doubled for every time the keys of the
+   * same name failed before in a row. A good or null key ends the series of failures.
+   *
+   * @param ke The key entry at the end of a FINDKEY phase.
+   */
+  private void storeKeyOutcome(KeyEntry ke) {
+    NameClassKey key = new NameClassKey(ke.getName(), ke.getDClass());
+    if (!ke.isBad()) {
+      this.keyFailures.remove(key);
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    Integer failures = this.keyFailures.get(key, now);
+    int n = failures == null ? 0 : failures;
+    long ttl = DEFAULT_TA_BAD_KEY_TTL << Math.min(n, MAX_BAD_KEY_BACKOFF);
+    KeyEntry bad = KeyEntry.newBadKeyEntry(ke.getName(), ke.getDClass(), ttl);
+    bad.setBadReason(ke.getBadReason());
+    this.keyCache.store(bad);
+
+    // a failure after the bad entry expired counts as repeated if it happens within the same time
+    this.keyFailures.put(key, n + 1, now + 2 * ttl * MILLISECONDS_PER_SECOND);
+    logger.debug("caching bad key {} for {}s", ke.getName(), ttl);
+  }
+
+  /**
+   * Sends the DS and DNSKEY queries for all names from the trust anchor (or the cached key the
+   * search starts with) down to the signer name, i.e. for all possible zone cuts on the way to the
+   * key. The FINDKEY phase then takes the responses it needs from {@link FindKeyState#prefetched}
+   * and still validates them top-down.
+   *
+   * @param state The state of a key finding phase that starts at a trust anchor or a cached key.
+   */
+  private void prefetchKeys(FindKeyState state) {
+    boolean startsWithKey = state.dsRRset == null;
+    Name start = startsWithKey ? state.keyEntry.getName() : state.dsRRset.getName();
+    int startLabels = start.labels();
+    int signerLabels = state.signerName.labels();
+    state.prefetched = new HashMap<>();
+    for (int l = signerLabels - startLabels; l >= 0; l--) {
+      Name name = new Name(state.signerName, l);
+      // the DS of the trust anchor is the trust anchor itself, the key to start with is known
+      if (l < signerLabels - startLabels) {
+        this.prefetch(state, Message.newQuery(Record.newRecord(name, Type.DS, state.qclass)));
+      } else if (startsWithKey) {
+        continue;
+      }
+
+      this.prefetch(state, Message.newQuery(Record.newRecord(name, Type.DNSKEY, state.qclass)));
+    }
+  }
+
+  private void prefetch(FindKeyState state, Message request) {
+    CompletionStage<SMessage> response;
+    try {
+      response = this.sendRequest(request);
+    } catch (RuntimeException e) {
+      response = this.failedFuture(e);
+    }
+
+    state.prefetched.put(request.getQuestion(), response);
+  }
+
+  /**
+   * Sends a DS or DNSKEY query of the FINDKEY phase, or takes the response of the query if it was
+   * already sent by {@link #prefetchKeys(FindKeyState)}.
+   */
+  private CompletionStage<SMessage> sendKeyRequest(FindKeyState state, Message request) {
+    if (state.prefetched != null) {
+      CompletionStage<SMessage> response = state.prefetched.remove(request.getQuestion());
+      if (response != null) {
+        return response;
+      }
+    }
+
+    return this.sendRequest(request);
+  }
+
   /**
    * Process the FINDKEY state. Generally this just calculates the next name to query and either
    * issues a DS or a DNSKEY query. It will check to see if the correct key has already been
@@ -938,17 +1491,86 @@ public class ValidatingResolver implements Resolver {
     // The next step is either to query for the next DS, or to query for the
     // next DNSKEY.
     if (state.dsRRset == null || !state.dsRRset.getName().equals(nextKeyName)) {
+      // the proofs of absent DS are not cached, they are needed for the authentication chain
+      if (state.chain == null
+          && Boolean.FALSE.equals(this.zoneCuts.isZoneCut(nextKeyName, qclass))) {
+        logger.trace("findKey: {} is known not to be a zone cut", nextKeyName);
+        return this.processDSKeyEntry(nextKeyName, null, state);
+      }
+
+      KeyEntry cachedDS = this.dsCache.get(nextKeyName, qclass);
+      if (cachedDS != null && (cachedDS.isGood() || state.chain == null)) {
+        logger.trace("findKey: DS for {} from cache", nextKeyName);
+        if (state.chain != null) {
+          addToChain(state, cachedDS);
+        }
+
+        return this.processDSKeyEntry(nextKeyName, cachedDS, state);
+      }
+
+      this.sendAheadToZoneCut(state, nextKeyName);
       Message dsRequest = Message.newQuery(Record.newRecord(nextKeyName, Type.DS, qclass));
-      return this.sendRequest(dsRequest)
-          .thenComposeAsync(dsResponse -> this.processDSResponse(dsRequest, dsResponse, state));
+      return this.sendKeyRequest(state, dsRequest)
+          .thenComposeAsync(
+              dsResponse -> this.processDSResponse(dsRequest, dsResponse, state), this.executor);
     }
 
     // Otherwise, it is time to query for the DNSKEY
     Message dnskeyRequest =
         Message.newQuery(Record.newRecord(state.dsRRset.getName(), Type.DNSKEY, qclass));
-    return this.sendRequest(dnskeyRequest)
+    return this.sendKeyRequest(state, dnskeyRequest)
         .thenComposeAsync(
-            dnskeyResponse -> this.processDNSKEYResponse(dnskeyRequest, dnskeyResponse, state));
+            dnskeyResponse -> this.processDNSKEYResponse(dnskeyRequest, dnskeyResponse, state),
+            this.executor);
+  }
+
+  /**
+   * Sends the DS queries from the next name of the key search down to the closest zone cut at or
+   * below it ahead of the label by label search. The zone cut is the signer name of a signature or
+   * a name that was validated to be a zone cut before. The responses are only taken when the search
+   * arrives at their names, so each DS is still accepted only if the key of its parent validates
+   * it, and the CNAME and DNAME answers of the names in between are still checked. The queries are
+   * thus the same, but they are sent in one round trip instead of one per label.
+   *
+   * @param state The state associated with the current key finding phase.
+   * @param nextKeyName The name directly below the current key on the way to the signer name.
+   */
+  private void sendAheadToZoneCut(FindKeyState state, Name nextKeyName) {
+    // with the parallel key fetch, all queries down to the signer were sent ahead already
+    if (this.parallelKeyFetch
+        || (state.sentAheadTo != null && state.sentAheadTo.subdomain(nextKeyName))) {
+      return;
+    }
+
+    int qclass = state.qclass;
+    Name zoneCut = null;
+    for (int l = state.signerName.labels() - nextKeyName.labels(); l >= 0 && zoneCut == null; l--) {
+      Name name = new Name(state.signerName, l);
+      if ((l == 0 && state.signed) || Boolean.TRUE.equals(this.zoneCuts.isZoneCut(name, qclass))) {
+        zoneCut = name;
+      }
+    }
+
+    if (zoneCut == null) {
+      return;
+    }
+
+    logger.trace("findKey: sending the queries down to the zone cut {} ahead", zoneCut);
+    if (state.prefetched == null) {
+      state.prefetched = new HashMap<>();
+    }
+
+    // the search sends the DS query of the next name itself, the DNSKEY query of the zone cut is
+    // only sent once its DS is validated, the search could end above it
+    for (int l = zoneCut.labels() - nextKeyName.labels() - 1; l >= 0; l--) {
+      Name name = new Name(zoneCut, l);
+      if ((state.chain != null || !Boolean.FALSE.equals(this.zoneCuts.isZoneCut(name, qclass)))
+          && this.dsCache.get(name, qclass) == null) {
+        this.prefetch(state, Message.newQuery(Record.newRecord(name, Type.DS, qclass)));
+      }
+    }
+
+    state.sentAheadTo = zoneCut;
   }
 
   /**
@@ -1116,11 +1738,54 @@ public class ValidatingResolver implements Resolver {
   private CompletionStage<Void> processDSResponse(
       Message request, SMessage response, FindKeyState state) {
     Name qname = request.getQuestion().getName();
+    KeyEntry dsKE = this.dsResponseToKE(response, request, state.keyEntry);
+    if (state.chain != null && (dsKE == null || dsKE.isGood() || dsKE.isNull())) {
+      if (dsKE != null && dsKE.isGood()) {
+        addToChain(state, dsKE);
+      } else {
+        // the proof that there is no DS
+        response.getSectionRRsets(Section.AUTHORITY).forEach(set -> addToChain(state, set));
+      }
+    }
+
+    if (dsKE == null) {
+      this.zoneCuts.store(qname, state.qclass, false, minTTL(response));
+    } else if (dsKE.isGood() || dsKE.isNull()) {
+      this.dsCache.store(dsKE);
+      this.zoneCuts.store(qname, state.qclass, true, dsKE.getTTL());
+    }
+
+    return this.processDSKeyEntry(qname, dsKE, state);
+  }
+
+  /**
+   * Gets the smallest TTL of the answer and authority RRsets of a response, 0 if there are none.
+   */
+  private static long minTTL(SMessage response) {
+    long ttl = -1;
+    for (int section : new int[] {Section.ANSWER, Section.AUTHORITY}) {
+      for (SRRset set : response.getSectionRRsets(section)) {
+        if (ttl < 0 || set.getTTL() < ttl) {
+          ttl = set.getTTL();
+        }
+      }
+    }
+
+    return Math.max(ttl, 0);
+  }
 
+  /**
+   * Continues the FINDKEY phase with the result of validating a DS response, from the response to a
+   * DS query or from the DS cache.
+   *
+   * @param qname The owner name of the DS RRset.
+   * @param dsKE The validated DS RRset, a null or bad key entry, or <code>null</code> if the name
+   *     is not a delegation point.
+   * @param state The state associated with the current key finding phase.
+   */
+  private CompletionStage<Void> processDSKeyEntry(Name qname, KeyEntry dsKE, FindKeyState state) {
     state.emptyDSName = null;
     state.dsRRset = null;
-
-    KeyEntry dsKE = this.dsResponseToKE(response, request, state.keyEntry);
     if (dsKE == null) {
       // DS response indicated that we aren't on a delegation point.
       state.emptyDSName = qname;
@@ -1133,6 +1798,8 @@ public class ValidatingResolver implements Resolver {
       state.keyEntry = dsKE;
       if (dsKE.isNull()) {
         this.keyCache.store(dsKE);
+        this.insecureDelegations.store(dsKE);
+        this.storeChain(state, dsKE);
       }
 
       // The FINDKEY phase has ended, so move on.
@@ -1167,12 +1834,34 @@ public class ValidatingResolver implements Resolver {
 
     // The DNSKEY validated, so cache it as a trusted key rrset.
     this.keyCache.store(state.keyEntry);
+    if (state.chain != null) {
+      addToChain(state, dnskeyRrset);
+      this.storeChain(state, state.keyEntry);
+    }
 
     // If good, we stay in the FINDKEY state.
     return this.processFindKey(state);
   }
 
-  private CompletionStage<SMessage> processValidate(Message request, SMessage response) {
+  private static void addToChain(FindKeyState state, SRRset set) {
+    state.chain.addAll(set.rrs());
+    state.chain.addAll(set.sigs());
+  }
+
+  /** Keeps the authentication chain of a key entry as long as the key cache keeps the entry. */
+  private void storeChain(FindKeyState state, KeyEntry ke) {
+    if (state.chain == null) {
+      return;
+    }
+
+    this.chains.put(
+        new NameClassKey(ke.getName(), ke.getDClass()),
+        new ArrayList<>(state.chain),
+        System.currentTimeMillis() + ke.getTTL() * MILLISECONDS_PER_SECOND);
+  }
+
+  private CompletionStage<SMessage> processValidate(
+      Message request, SMessage response, boolean cache) {
     ResponseClassification subtype = ValUtils.classifyResponse(request, response);
     if (subtype != ResponseClassification.REFERRAL) {
       this.removeSpuriousAuthority(response);
@@ -1196,7 +1885,7 @@ public class ValidatingResolver implements Resolver {
         logger.trace("Validating a CNAME_NODATA response");
         completionStage =
             this.validatePositiveResponse(request, response)
-                .thenCompose(
+                .thenComposeAsync(
                     v -> {
                       if (response.getStatus() != SecurityStatus.INSECURE) {
                         response.setStatus(SecurityStatus.UNCHECKED);
@@ -1204,7 +1893,8 @@ public class ValidatingResolver implements Resolver {
                       }
 
                       return completedFuture(null);
-                    });
+                    },
+                    this.executor);
         break;
 
       case NAMEERROR:
@@ -1216,7 +1906,7 @@ public class ValidatingResolver implements Resolver {
         logger.trace("Validating a cname_nxdomain response");
         completionStage =
             this.validatePositiveResponse(request, response)
-                .thenCompose(
+                .thenComposeAsync(
                     v -> {
                       if (response.getStatus() != SecurityStatus.INSECURE) {
                         response.setStatus(SecurityStatus.UNCHECKED);
@@ -1224,7 +1914,8 @@ public class ValidatingResolver implements Resolver {
                       }
 
                       return completedFuture(null);
-                    });
+                    },
+                    this.executor);
         break;
 
       default:
@@ -1233,7 +1924,16 @@ public class ValidatingResolver implements Resolver {
         break;
     }
 
-    return completionStage.thenApply(v -> this.processFinishedState(request, response));
+    return completionStage.thenApply(
+        v -> {
+          if (cache
+              && (subtype == ResponseClassification.NODATA
+                  || subtype == ResponseClassification.NAMEERROR)) {
+            this.aggressiveNsecCache.store(response, this.clock.instant());
+          }
+
+          return this.processFinishedState(request, response);
+        });
   }
 
   /**
@@ -1340,55 +2040,332 @@ public class ValidatingResolver implements Resolver {
   }
 
   /**
-   * Asynchronously sends a message and validates the response with DNSSEC before returning it.
+   * Asynchronously sends a message and validates the response with DNSSEC before returning it. If
+   * the response cache is enabled (see {@link ResponseCache}), a previously validated response is
+   * returned without contacting the head resolver. If the {@link AggressiveNsecCache} is enabled,
+   * NXDOMAIN and NODATA responses that are proven by cached NSEC/NSEC3 records are synthesized.
+   *
+   * <p>A query that asks the same question with the same CD and DO flags as a query that is still
+   * in progress is not sent again. It gets a copy of the response to the pending query, with its
+   * own ID.
    *
    * @param query The query to send.
    * @return A future that completes when the query is finished.
    */
   public CompletionStage<Message> sendAsync(Message query) {
-    return this.sendRequest(query)
-        .thenCompose(
-            response -> {
-              response.getHeader().unsetFlag(Flags.AD);
+    Message cached = this.getCachedResponse(query);
+    if (cached != null) {
+      return completedFuture(cached);
+    }
 
-              // If the CD bit is set, do not process the (cached) validation status.
-              if (query.getHeader().getFlag(Flags.CD)) {
-                return completedFuture(response.getMessage());
-              }
+    QueryKey key = new QueryKey(query);
+    CompletableFuture<Message> pending = new CompletableFuture<>();
+    CompletableFuture<Message> shared = this.pendingQueries.putIfAbsent(key, pending);
+    if (shared != null) {
+      logger.trace("joining query for {}", key);
+    } else {
+      shared = pending;
+      this.sendAndCache(query)
+          .whenComplete(
+              (response, ex) -> {
+                // the response is cached now, later queries must not join this one anymore
+                this.pendingQueries.remove(key, pending);
+                if (ex != null) {
+                  pending.completeExceptionally(ex);
+                } else {
+                  pending.complete(response);
+                }
+              });
+    }
+
+    // every caller gets its own copy, they might modify it
+    return shared.thenApply(
+        response -> {
+          Message copy = response.clone();
+          copy.getHeader().setID(query.getHeader().getID());
+          return copy;
+        });
+  }
+
+  private CompletionStage<Message> sendAndCache(Message query) {
+    CompletionStage<Message> validated;
+    try {
+      validated = this.sendAndValidate(query);
+    } catch (RuntimeException e) {
+      validated = this.failedFuture(e);
+    }
+
+    return this.cacheResponse(query, validated);
+  }
+
+  /**
+   * Asynchronously sends a batch of messages and validates the responses with DNSSEC. All queries
+   * are sent at once. When the responses have arrived, the key of each zone that signed an RRset of
+   * the responses is looked up once before the responses are validated like in {@link
+   * #sendAsync(Message)}.
+   *
+   * @param queries The queries to send.
+   * @return A future with the validated responses in the order of the queries. The future fails if
+   *     one of the queries fails.
+   */
+  public CompletionStage<List<Message>> sendBatchAsync(List<Message> queries) {
+    long start = System.nanoTime();
+    List<Message> cached = new ArrayList<>(queries.size());
+    List<CompletableFuture<SMessage>> responses = new ArrayList<>(queries.size());
+    for (Message query : queries) {
+      Message m = this.getCachedResponse(query);
+      cached.add(m);
+      responses.add(m != null ? null : this.sendRequest(query).toCompletableFuture());
+    }
 
-              // Positive RRSIG responses cannot be validated as there are no
-              // signatures on signatures. Negative answers CAN be validated.
-              Message rrsigResponse = response.getMessage();
-              if (query.getQuestion().getType() == Type.RRSIG
-                  && rrsigResponse.getHeader().getRcode() == Rcode.NOERROR
-                  && !rrsigResponse.getSectionRRsets(Section.ANSWER).isEmpty()) {
-                rrsigResponse.getHeader().unsetFlag(Flags.AD);
-                return completedFuture(rrsigResponse);
+    return this.validateBatch(queries, cached, responses, true, start);
+  }
+
+  /**
+   * Asynchronously validates a batch of responses that were obtained without this resolver. The key
+   * of each zone that signed an RRset of the responses is looked up once before the responses are
+   * validated. The responses must have been requested with the DO flag and must contain the
+   * signatures. The caches of validated responses are not used.
+   *
+   * @param queries The queries that were sent.
+   * @param responses The responses to the queries, in the same order. They are not modified.
+   * @return A future with the validated responses in the order of the queries.
+   * @throws IllegalArgumentException if there is not one response for each query.
+   */
+  public CompletionStage<List<Message>> validateBatchAsync(
+      List<Message> queries, List<Message> responses) {
+    if (queries.size() != responses.size()) {
+      throw new IllegalArgumentException("Each query needs exactly one response");
+    }
+
+    long start = System.nanoTime();
+    List<CompletableFuture<SMessage>> messages = new ArrayList<>(responses.size());
+    for (Message response : responses) {
+      messages.add(completedFuture(new SMessage(response.clone())));
+    }
+
+    return this.validateBatch(
+        queries, Collections.nCopies(queries.size(), null), messages, false, start);
+  }
+
+  /**
+   * Looks up the keys for the responses of a batch and validates the responses.
+   *
+   * @param queries The queries of the batch.
+   * @param cached The responses from the caches, <code>null</code> for queries that were sent.
+   * @param responses The pending responses to the queries, <code>null</code> for cached queries.
+   * @param cache Whether the validated responses are added to the response and aggressive NSEC
+   *     caches.
+   * @param start The time at which the batch started, from {@link System#nanoTime()}.
+   */
+  private CompletionStage<List<Message>> validateBatch(
+      List<Message> queries,
+      List<Message> cached,
+      List<CompletableFuture<SMessage>> responses,
+      boolean cache,
+      long start) {
+    CompletableFuture<?>[] arrived =
+        responses.stream().filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(arrived)
+        .thenCompose(v -> this.findBatchKeys(queries, responses))
+        .thenComposeAsync(
+            zones -> {
+              List<CompletableFuture<Message>> validated = new ArrayList<>(queries.size());
+              for (int i = 0; i < queries.size(); i++) {
+                Message query = queries.get(i);
+                CompletableFuture<SMessage> response = responses.get(i);
+                if (response == null) {
+                  validated.add(completedFuture(cached.get(i)));
+                } else {
+                  CompletionStage<Message> m = this.validateResponse(query, response.join(), cache);
+                  validated.add((cache ? this.cacheResponse(query, m) : m).toCompletableFuture());
+                }
               }
 
-              return this.processValidate(query, response)
+              return CompletableFuture.allOf(validated.toArray(new CompletableFuture<?>[0]))
                   .thenApply(
-                      validated -> {
-                        Message m = validated.getMessage();
-                        String reason = validated.getBogusReason();
-                        if (reason != null) {
-                          final int maxTxtRecordStringLength = 255;
-                          String[] parts =
-                              new String[reason.length() / maxTxtRecordStringLength + 1];
-                          for (int i = 0; i < parts.length; i++) {
-                            int length =
-                                Math.min((i + 1) * maxTxtRecordStringLength, reason.length());
-                            parts[i] = reason.substring(i * maxTxtRecordStringLength, length);
-                          }
-
-                          m.addRecord(
-                              new TXTRecord(
-                                  Name.root, VALIDATION_REASON_QCLASS, 0, Arrays.asList(parts)),
-                              Section.ADDITIONAL);
+                      all -> {
+                        long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                        logger.debug(
+                            "Validated batch of {} messages with keys of {} zones in {} ms ({}"
+                                + " messages/s)",
+                            queries.size(),
+                            zones,
+                            ms,
+                            queries.size() * 1000L / ms);
+                        List<Message> result = new ArrayList<>(validated.size());
+                        for (CompletableFuture<Message> m : validated) {
+                          result.add(m.join());
                         }
 
-                        return m;
+                        return result;
                       });
+            },
+            this.executor);
+  }
+
+  /**
+   * Looks up the key of each zone that signed an RRset in the responses of a batch, so that the
+   * validation of the single responses finds all keys in the key cache.
+   *
+   * @return The number of zones whose key was looked up.
+   */
+  private CompletionStage<Integer> findBatchKeys(
+      List<Message> queries, List<CompletableFuture<SMessage>> responses) {
+    Map<NameClassKey, SRRset> signers = new HashMap<>();
+    for (int i = 0; i < queries.size(); i++) {
+      if (responses.get(i) == null || queries.get(i).getHeader().getFlag(Flags.CD)) {
+        continue;
+      }
+
+      SMessage response = responses.get(i).join();
+      for (int section : new int[] {Section.ANSWER, Section.AUTHORITY}) {
+        for (SRRset set : response.getSectionRRsets(section)) {
+          if (set.getSignerName() != null) {
+            signers.putIfAbsent(new NameClassKey(set.getSignerName(), set.getDClass()), set);
+          }
+        }
+      }
+    }
+
+    // failed lookups are repeated by the validation of the response, which reports them
+    CompletableFuture<?>[] lookups =
+        signers.values().stream()
+            .map(set -> this.prepareFindKey(set).toCompletableFuture().exceptionally(ex -> null))
+            .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(lookups).thenApply(v -> signers.size());
+  }
+
+  /**
+   * Gets the authentication chain of a response that was validated by this resolver, i.e. the DS
+   * and DNSKEY records from the trust anchors down to the keys of all signers in the response.
+   * Capturing the chains must be enabled with {@link #CHAIN_CACHE_SIZE_CONFIG}.
+   *
+   * @param response The validated response.
+   * @return The authentication chain of the response.
+   * @throws IllegalStateException if the chain of a key of the response is not available, e.g.
+   *     because capturing is disabled or the key was found in a key cache shared with another
+   *     resolver.
+   */
+  public AuthenticationChain getAuthenticationChain(Message response) {
+    Set<Record> records = new LinkedHashSet<>();
+    for (int section : new int[] {Section.ANSWER, Section.AUTHORITY}) {
+      for (RRset set : response.getSectionRRsets(section)) {
+        Name signer = new SRRset(set).getSignerName();
+        if (signer == null || this.trustAnchors.find(signer, set.getDClass()) == null) {
+          continue;
+        }
+
+        KeyEntry ke = this.keyCache.find(signer, set.getDClass());
+        List<Record> chain =
+            ke == null
+                ? null
+                : this.chains.get(
+                    new NameClassKey(ke.getName(), ke.getDClass()), System.currentTimeMillis());
+        if (chain == null) {
+          throw new IllegalStateException("No authentication chain available for " + signer);
+        }
+
+        records.addAll(chain);
+      }
+    }
+
+    return new AuthenticationChain(new ArrayList<>(records));
+  }
+
+  /**
+   * Asynchronously validates a response against an authentication chain, without sending any query.
+   * The chain is not trusted, it must lead from the trust anchors of this resolver to the signers
+   * of the response. The keys of the chain are not added to the key cache.
+   *
+   * @param query The query that was sent.
+   * @param response The response to validate. It is not modified.
+   * @param chain The chain with the keys of the response, e.g. from {@link
+   *     #getAuthenticationChain(Message)} of another resolver.
+   * @return A future with the validated response. The future fails if the chain is missing a DS or
+   *     DNSKEY RRset that is needed for the validation.
+   */
+  public CompletionStage<Message> validateWithChainAsync(
+      Message query, Message response, AuthenticationChain chain) {
+    ValidatingResolver offline = new ValidatingResolver(this, chain);
+    return offline.validateResponse(query, new SMessage(response.clone()), true);
+  }
+
+  /**
+   * Gets the response to a query from the response cache or synthesizes it from the aggressive NSEC
+   * cache.
+   *
+   * @param query The query to answer.
+   * @return The response, or <code>null</code> if the query must be sent.
+   */
+  private Message getCachedResponse(Message query) {
+    if (this.responseCache.isEnabled()) {
+      Message cached = this.responseCache.get(query, this.clock.instant());
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    return this.aggressiveNsecCache.get(query, this.clock.instant());
+  }
+
+  /** Puts the validated response to a query into the response cache, if it is enabled. */
+  private CompletionStage<Message> cacheResponse(
+      Message query, CompletionStage<Message> validated) {
+    if (!this.responseCache.isEnabled()) {
+      return validated;
+    }
+
+    return validated.thenApply(
+        response -> {
+          this.responseCache.put(query, response, this.clock.instant());
+          return response;
+        });
+  }
+
+  private CompletionStage<Message> sendAndValidate(Message query) {
+    return this.sendRequest(query)
+        .thenComposeAsync(response -> this.validateResponse(query, response, true), this.executor);
+  }
+
+  private CompletionStage<Message> validateResponse(
+      Message query, SMessage response, boolean cache) {
+    response.getHeader().unsetFlag(Flags.AD);
+
+    // If the CD bit is set, do not process the (cached) validation status.
+    if (query.getHeader().getFlag(Flags.CD)) {
+      return completedFuture(response.getMessage());
+    }
+
+    // Positive RRSIG responses cannot be validated as there are no
+    // signatures on signatures. Negative answers CAN be validated.
+    Message rrsigResponse = response.getMessage();
+    if (query.getQuestion().getType() == Type.RRSIG
+        && rrsigResponse.getHeader().getRcode() == Rcode.NOERROR
+        && !rrsigResponse.getSectionRRsets(Section.ANSWER).isEmpty()) {
+      rrsigResponse.getHeader().unsetFlag(Flags.AD);
+      return completedFuture(rrsigResponse);
+    }
+
+    return this.processValidate(query, response, cache)
+        .thenApply(
+            validated -> {
+              Message m = validated.getMessage();
+              String reason = validated.getBogusReason();
+              if (reason != null) {
+                final int maxTxtRecordStringLength = 255;
+                String[] parts = new String[reason.length() / maxTxtRecordStringLength + 1];
+                for (int i = 0; i < parts.length; i++) {
+                  int length = Math.min((i + 1) * maxTxtRecordStringLength, reason.length());
+                  parts[i] = reason.substring(i * maxTxtRecordStringLength, length);
+                }
+
+                m.addRecord(
+                    new TXTRecord(Name.root, VALIDATION_REASON_QCLASS, 0, Arrays.asList(parts)),
+                    Section.ADDITIONAL);
+              }
+
+              return m;
             });
   }
 
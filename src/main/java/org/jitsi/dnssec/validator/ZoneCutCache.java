@@ -0,0 +1,105 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import java.util.Properties;
+import org.xbill.DNS.Name;
+
+/**
+ * Cache of the names that were proven to be zone cuts (delegation points) or not. The key search
+ * skips the DS queries for names that are known not to be zone cuts, e.g. empty non-terminals and
+ * names inside a zone on the way to a deeper signer.
+ */
+public final class ZoneCutCache {
+  /** Name of the property that configures the maximum cache size, 0 disables the cache. */
+  public static final String MAX_CACHE_SIZE_CONFIG = "org.jitsi.dnssec.zonecutcache.max_size";
+
+  private static final int MILLISECONDS_PER_SECOND = 1000;
+  private static final int DEFAULT_MAX_TTL = 900;
+  private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+  /** Whether a name is a zone cut, by name and class. */
+  private final ClockCache<NameClassKey, Boolean> cache = new ClockCache<>(DEFAULT_MAX_CACHE_SIZE);
+
+  /** This is the maximum TTL [s] that all entries will have. */
+  private long maxTtl = DEFAULT_MAX_TTL;
+
+  /** Creates a new instance of this class. */
+  ZoneCutCache() {}
+
+  /**
+   * Initialize the cache. The recognized configuration values are {@link #MAX_CACHE_SIZE_CONFIG}
+   * and the maximum TTL of the key cache, {@link KeyCache#MAX_TTL_CONFIG}.
+   *
+   * @param config The configuration data.
+   */
+  void init(Properties config) {
+    String s = config.getProperty(KeyCache.MAX_TTL_CONFIG);
+    if (s != null) {
+      this.maxTtl = Long.parseLong(s);
+    }
+
+    s = config.getProperty(MAX_CACHE_SIZE_CONFIG);
+    if (s != null) {
+      this.cache.setMaxSize(Integer.parseInt(s));
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * Gets whether a name is known to be a zone cut.
+   *
+   * @param n The name to check.
+   * @param dclass The class of the name.
+   * @return {@link Boolean#TRUE} if the name is a zone cut, {@link Boolean#FALSE} if it is not, or
+   *     <code>null</code> if this is not known.
+   */
+  Boolean isZoneCut(Name n, int dclass) {
+    if (this.cache.getMaxSize() <= 0) {
+      return null;
+    }
+
+    return this.cache.get(new NameClassKey(n, dclass), System.currentTimeMillis());
+  }
+
+  /**
+   * Stores whether a name is a zone cut, replacing what was known before.
+   *
+   * @param n The name.
+   * @param dclass The class of the name.
+   * @param zoneCut Whether the name is a zone cut.
+   * @param ttl The TTL [s] of the proof.
+   */
+  void store(Name n, int dclass, boolean zoneCut, long ttl) {
+    if (this.cache.getMaxSize() <= 0 || ttl <= 0) {
+      return;
+    }
+
+    this.cache.put(
+        new NameClassKey(n, dclass),
+        zoneCut,
+        System.currentTimeMillis() + Math.min(ttl, this.maxTtl) * MILLISECONDS_PER_SECOND);
+  }
+
+  /** Removes all entries, e.g. when the trust anchors change. */
+  void clear() {
+    this.cache.clear();
+  }
+
+  /**
+   * Gets the number of names that are known to be zone cuts or not.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return this.cache.size();
+  }
+}
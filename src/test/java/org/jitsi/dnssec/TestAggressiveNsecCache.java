@@ -0,0 +1,90 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+import org.jitsi.dnssec.validator.AggressiveNsecCache;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+public class TestAggressiveNsecCache extends TestBase {
+  private void enableCache() throws IOException {
+    Properties config = new Properties();
+    config.put(AggressiveNsecCache.MAX_CACHE_SIZE_CONFIG, "10");
+    resolver.init(config);
+  }
+
+  @Test
+  public void testNxDomainIsSynthesizedFromNsec() throws IOException {
+    enableCache();
+    Message first = resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+    assertEquals(Rcode.NXDOMAIN, first.getRcode());
+
+    // the head resolver would now fail the test, so the response must be synthesized
+    clear();
+    Message query = createMessage("gibtsauchnicht.ingotronic.ch./A");
+    Message response = resolver.send(query);
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(query.getHeader().getID(), response.getHeader().getID());
+    assertEquals(query.getQuestion(), response.getQuestion());
+    assertTrue(isEmptyAnswer(response));
+    assertEquals(Type.SOA, response.getSectionRRsets(Section.AUTHORITY).get(0).getType());
+  }
+
+  @Test
+  public void testNxDomainIsSynthesizedFromNsec3() throws IOException {
+    enableCache();
+    Message first = resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A"));
+    assertEquals(Rcode.NXDOMAIN, first.getRcode());
+
+    clear();
+    Message response = resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./MX"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertTrue(
+        response.getSectionRRsets(Section.AUTHORITY).stream()
+            .anyMatch(set -> set.getType() == Type.NSEC3));
+  }
+
+  @Test
+  public void testNodataIsSynthesizedFromNsec() throws IOException {
+    enableCache();
+    Message first = resolver.send(createMessage("www.ingotronic.ch./MX"));
+    assertEquals(Rcode.NOERROR, first.getRcode());
+
+    clear();
+    Message response = resolver.send(createMessage("www.ingotronic.ch./TXT"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+    assertTrue(isEmptyAnswer(response));
+  }
+
+  @Test
+  public void testCheckingDisabledIsNotSynthesized() throws IOException {
+    enableCache();
+    resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+
+    Message query = createMessage("gibtsnicht.ingotronic.ch./A");
+    query.getHeader().setFlag(Flags.CD);
+    Message response = resolver.send(query);
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+  }
+}
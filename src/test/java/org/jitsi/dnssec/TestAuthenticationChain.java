@@ -0,0 +1,137 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.jitsi.dnssec.validator.AuthenticationChain;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.Type;
+
+public class TestAuthenticationChain extends TestBase {
+  private void enableCapture() throws IOException {
+    Properties config = new Properties();
+    config.put(ValidatingResolver.CHAIN_CACHE_SIZE_CONFIG, "10");
+    resolver.init(config);
+  }
+
+  /** Creates a resolver that fails every query it would send. */
+  private ValidatingResolver newOfflineResolver() throws IOException {
+    ValidatingResolver offline =
+        new ValidatingResolver(
+            new SimpleResolver("127.0.0.1") {
+              @Override
+              public CompletionStage<Message> sendAsync(Message query) {
+                CompletableFuture<Message> f = new CompletableFuture<>();
+                f.completeExceptionally(new IOException("No queries allowed: " + query));
+                return f;
+              }
+            },
+            resolverClock);
+    offline.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
+    return offline;
+  }
+
+  @Test
+  public void testChainValidatesWithoutQueries() throws Exception {
+    enableCapture();
+    Message validated = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(validated.getHeader().getFlag(Flags.AD), "AD flag must be set");
+
+    AuthenticationChain chain = resolver.getAuthenticationChain(validated);
+    List<Integer> types =
+        chain.getRecords().stream().map(Record::getType).distinct().collect(Collectors.toList());
+    assertTrue(types.contains(Type.DS));
+    assertTrue(types.contains(Type.DNSKEY));
+    assertTrue(types.contains(Type.RRSIG));
+
+    // the chain survives the wire format
+    AuthenticationChain shipped = AuthenticationChain.fromWire(chain.toWire());
+    assertEquals(chain.getRecords(), shipped.getRecords());
+
+    Message response =
+        newOfflineResolver()
+            .validateWithChainAsync(
+                createMessage("www.ingotronic.ch./A"),
+                get(Name.fromString("www.ingotronic.ch."), Type.A),
+                shipped)
+            .toCompletableFuture()
+            .get();
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+    assertEquals(localhost, firstA(response));
+    assertNull(getReason(response));
+  }
+
+  @Test
+  public void testChainOfNsec3ProofValidatesWithoutQueries() throws Exception {
+    enableCapture();
+    Message validated = resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A"));
+    assertTrue(validated.getHeader().getFlag(Flags.AD), "AD flag must be set");
+
+    Message response =
+        newOfflineResolver()
+            .validateWithChainAsync(
+                createMessage("gibtsnicht.nsec3.ingotronic.ch./A"),
+                get(Name.fromString("gibtsnicht.nsec3.ingotronic.ch."), Type.A),
+                resolver.getAuthenticationChain(validated))
+            .toCompletableFuture()
+            .get();
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertNull(getReason(response));
+  }
+
+  @Test
+  public void testIncompleteChainFails() throws Exception {
+    enableCapture();
+    Message validated = resolver.send(createMessage("www.ingotronic.ch./A"));
+    List<Record> withoutZoneKeys =
+        resolver.getAuthenticationChain(validated).getRecords().stream()
+            .filter(
+                r ->
+                    r.getRRsetType() != Type.DNSKEY
+                        || !r.getName().equals(Name.fromConstantString("ingotronic.ch.")))
+            .collect(Collectors.toList());
+
+    CompletableFuture<Message> response =
+        newOfflineResolver()
+            .validateWithChainAsync(
+                createMessage("www.ingotronic.ch./A"),
+                get(Name.fromString("www.ingotronic.ch."), Type.A),
+                new AuthenticationChain(withoutZoneKeys))
+            .toCompletableFuture();
+    assertThrows(ExecutionException.class, response::get);
+  }
+
+  @Test
+  public void testChainRequiresCapturing() throws IOException {
+    Message validated = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertThrows(IllegalStateException.class, () -> resolver.getAuthenticationChain(validated));
+  }
+}
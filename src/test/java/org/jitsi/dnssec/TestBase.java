@@ -27,12 +27,17 @@ import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jitsi.dnssec.validator.KeyCache;
 import org.jitsi.dnssec.validator.ValidatingResolver;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -48,6 +53,7 @@ import org.xbill.DNS.Message;
 import org.xbill.DNS.Name;
 import org.xbill.DNS.RRset;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
 import org.xbill.DNS.Section;
 import org.xbill.DNS.SimpleResolver;
 import org.xbill.DNS.TXTRecord;
@@ -191,6 +197,82 @@ public abstract class TestBase {
     resolver.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
   }
 
+  /**
+   * A head resolver that answers from the added responses only. It counts the queries and holds
+   * back the responses to gated queries until their gate is completed.
+   */
+  protected class CountingResolver extends SimpleResolver {
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, CompletableFuture<Void>> gates = new ConcurrentHashMap<>();
+
+    public CountingResolver() throws IOException {
+      super(localhost);
+    }
+
+    /**
+     * Holds back the responses to the given queries until the returned gate is completed.
+     *
+     * @param queries The gated queries, as "name/TYPE".
+     * @return The gate to complete to release the responses.
+     */
+    public CompletableFuture<Void> gate(String... queries) {
+      CompletableFuture<Void> gate = new CompletableFuture<>();
+      for (String query : queries) {
+        gates.put(query, gate);
+      }
+
+      return gate;
+    }
+
+    /** Gets how often a query ("name/TYPE") was sent. */
+    public int count(String query) {
+      AtomicInteger count = counts.get(query);
+      return count == null ? 0 : count.get();
+    }
+
+    /** Gets all sent queries ("name/TYPE") in the order they were sent. */
+    public List<String> queries() {
+      synchronized (queries) {
+        return new ArrayList<>(queries);
+      }
+    }
+
+    @Override
+    public CompletionStage<Message> sendAsync(Message query) {
+      String key = key(query);
+      counts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+      queries.add(key);
+      Message response = queryResponsePairs.get(key);
+      if (response == null) {
+        CompletableFuture<Message> f = new CompletableFuture<>();
+        f.completeExceptionally(new IOException("Response for " + key + " not found."));
+        return f;
+      }
+
+      CompletableFuture<Void> gate = gates.get(key);
+      if (gate != null) {
+        return gate.thenApply(v -> response);
+      }
+
+      return CompletableFuture.completedFuture(response);
+    }
+  }
+
+  /** Creates a validating resolver with the trust anchors on top of a head resolver. */
+  protected ValidatingResolver newResolver(Resolver head) throws IOException {
+    ValidatingResolver validating = new ValidatingResolver(head, resolverClock);
+    validating.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
+    return validating;
+  }
+
+  /** Creates a validating resolver with the trust anchors and a key cache on a head resolver. */
+  protected ValidatingResolver newResolver(Resolver head, KeyCache keyCache) throws IOException {
+    ValidatingResolver validating = new ValidatingResolver(head, resolverClock, keyCache);
+    validating.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
+    return validating;
+  }
+
   protected void add(Message m) throws IOException {
     this.add(key(m), m, true);
   }
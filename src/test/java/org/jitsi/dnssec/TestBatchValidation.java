@@ -0,0 +1,121 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.jitsi.dnssec.validator.AggressiveNsecCache;
+import org.jitsi.dnssec.validator.ResponseCache;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Type;
+
+public class TestBatchValidation extends TestBase {
+  @Test
+  public void testBatchOfQueries() throws Exception {
+    List<Message> queries =
+        Arrays.asList(
+            createMessage("www.ingotronic.ch./A"),
+            createMessage("gibtsnicht.ingotronic.ch./A"),
+            createMessage("www.ingotronic.ch./A"));
+    List<Message> responses = resolver.sendBatchAsync(queries).toCompletableFuture().get();
+
+    assertEquals(3, responses.size());
+    assertTrue(responses.get(0).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, responses.get(0).getRcode());
+    assertEquals(localhost, firstA(responses.get(0)));
+    assertTrue(responses.get(1).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, responses.get(1).getRcode());
+    assertNull(getReason(responses.get(1)));
+    assertTrue(responses.get(2).getHeader().getFlag(Flags.AD), "AD flag must be set");
+  }
+
+  @Test
+  public void testBatchOfResponses() throws Exception {
+    Message query = createMessage("www.ingotronic.ch./A");
+    Message response = get(Name.fromString("www.ingotronic.ch."), Type.A);
+    Message nxQuery = createMessage("gibtsnicht.ingotronic.ch./A");
+    Message nxResponse = get(Name.fromString("gibtsnicht.ingotronic.ch."), Type.A);
+    Message tampered = messageFromString(response.toString().replace("127.0.0.1", "127.0.0.2"));
+    String original = tampered.toString();
+
+    List<Message> validated =
+        resolver
+            .validateBatchAsync(
+                Arrays.asList(query, nxQuery, query), Arrays.asList(response, nxResponse, tampered))
+            .toCompletableFuture()
+            .get();
+
+    assertTrue(validated.get(0).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, validated.get(1).getRcode());
+    assertTrue(validated.get(1).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertFalse(validated.get(2).getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertEquals(Rcode.SERVFAIL, validated.get(2).getRcode());
+
+    // the input is not modified
+    assertEquals(original, tampered.toString());
+  }
+
+  @Test
+  public void testBatchOfResponsesIsNotCached() throws Exception {
+    CountingResolver head = new CountingResolver();
+    ValidatingResolver validating = newResolver(head);
+    Properties config = new Properties();
+    config.put(ResponseCache.MAX_CACHE_SIZE_CONFIG, "10");
+    config.put(AggressiveNsecCache.MAX_CACHE_SIZE_CONFIG, "10");
+    validating.init(config);
+
+    Message query = createMessage("www.ingotronic.ch./A");
+    Message nxQuery = createMessage("gibtsnicht.ingotronic.ch./A");
+    List<Message> validated =
+        validating
+            .validateBatchAsync(
+                Arrays.asList(query, nxQuery),
+                Arrays.asList(
+                    get(Name.fromString("www.ingotronic.ch."), Type.A),
+                    get(Name.fromString("gibtsnicht.ingotronic.ch."), Type.A)))
+            .toCompletableFuture()
+            .get();
+    assertTrue(validated.get(0).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertTrue(validated.get(1).getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(0, head.count("www.ingotronic.ch./A"));
+
+    // the responses were obtained elsewhere, the queries must be sent
+    Message response = validating.sendAsync(query).toCompletableFuture().get();
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(1, head.count("www.ingotronic.ch./A"));
+    response = validating.sendAsync(nxQuery).toCompletableFuture().get();
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(1, head.count("gibtsnicht.ingotronic.ch./A"));
+  }
+
+  @Test
+  public void testBatchOfResponsesNeedsOneResponsePerQuery() throws Exception {
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            resolver.validateBatchAsync(
+                Collections.singletonList(createMessage("www.ingotronic.ch./A")),
+                Collections.emptyList()));
+  }
+}
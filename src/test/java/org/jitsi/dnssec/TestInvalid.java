@@ -71,6 +71,22 @@ public class TestInvalid extends TestBase {
     assertEquals("validate.bogus.badkey:bogussig.dnssec.tjeb.nl.:failed.ds", getReason(response));
   }
 
+  @Test
+  @AlwaysOffline
+  public void testBadKeyIsCached() throws IOException {
+    Message response = resolver.send(createMessage("bogussig.dnssec.tjeb.nl./A"));
+    assertEquals(Rcode.SERVFAIL, response.getRcode());
+
+    // only the answer is available now, the bad key must come from the cache
+    Message answer = get(Name.fromString("bogussig.dnssec.tjeb.nl."), Type.A);
+    clear();
+    add("bogussig.dnssec.tjeb.nl./A", answer, false);
+    response = resolver.send(createMessage("bogussig.dnssec.tjeb.nl./A"));
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertEquals(Rcode.SERVFAIL, response.getRcode());
+    assertEquals("validate.bogus.badkey:bogussig.dnssec.tjeb.nl.:failed.ds", getReason(response));
+  }
+
   @Test
   @AlwaysOffline
   public void testSignedBelowUnsignedBelowSigned() throws IOException {
@@ -145,6 +161,32 @@ public class TestInvalid extends TestBase {
     assertEquals("validate.bogus.missingsig", getReason(response));
   }
 
+  @Test
+  public void testKnownNonZoneCutIsNotQueriedAgain() throws IOException {
+    Name query = Name.fromString("www.ingotronic.ch.");
+    Message message = new Message();
+    message.addRecord(Record.newRecord(query, Type.A, DClass.IN), Section.QUESTION);
+    message.addRecord(
+        new ARecord(query, Type.A, DClass.IN, InetAddress.getByName(localhost)), Section.ANSWER);
+    add("www.ingotronic.ch./A", message);
+    resolver.send(createMessage("www.ingotronic.ch./A"));
+
+    // ch. and ingotronic.ch. are zone cuts, www.ingotronic.ch. is not
+    assertEquals(3, resolver.getZoneCutCache().size());
+
+    // www.ingotronic.ch. is now known not to be a zone cut, the DS query must not be sent again
+    clear();
+    add("www.ingotronic.ch./A", message, false);
+    Message response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertEquals(Rcode.SERVFAIL, response.getRcode());
+    assertEquals("validate.bogus.missingsig", getReason(response));
+
+    // the zone cuts were learned under the old trust anchors
+    resolver.loadTrustAnchors(getClass().getResourceAsStream("/trust_anchors"));
+    assertEquals(0, resolver.getZoneCutCache().size());
+  }
+
   @Test
   public void testModifiedSignature() throws IOException {
     Name query = Name.fromString("www.ingotronic.ch.");
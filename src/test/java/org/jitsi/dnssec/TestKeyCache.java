@@ -12,8 +12,10 @@ package org.jitsi.dnssec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Properties;
+import org.jitsi.dnssec.validator.InMemoryKeyCache;
 import org.jitsi.dnssec.validator.KeyCache;
 import org.jitsi.dnssec.validator.KeyEntry;
 import org.junit.jupiter.api.Test;
@@ -26,7 +28,7 @@ import org.xbill.DNS.TextParseException;
 public class TestKeyCache {
   @Test
   public void testNullPropertiesDontFail() {
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     kc.init(null);
   }
 
@@ -34,7 +36,7 @@ public class TestKeyCache {
   public void testMaxCacheSize() throws TextParseException {
     Properties p = new Properties();
     p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "1");
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     kc.init(p);
     KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
     KeyEntry nkeB = KeyEntry.newNullKeyEntry(Name.fromString("b."), DClass.IN, 60);
@@ -44,9 +46,27 @@ public class TestKeyCache {
     assertNull(fromCache);
   }
 
+  @Test
+  public void testEvictionKeepsRecentlyUsedEntries() throws TextParseException {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "2");
+    KeyCache kc = new InMemoryKeyCache();
+    kc.init(p);
+    KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    KeyEntry nkeB = KeyEntry.newNullKeyEntry(Name.fromString("b."), DClass.IN, 60);
+    KeyEntry nkeC = KeyEntry.newNullKeyEntry(Name.fromString("c."), DClass.IN, 60);
+    kc.store(nkeA);
+    kc.store(nkeB);
+    assertEquals(nkeA, kc.find(Name.fromString("a."), DClass.IN));
+    kc.store(nkeC);
+    assertEquals(nkeA, kc.find(Name.fromString("a."), DClass.IN));
+    assertNull(kc.find(Name.fromString("b."), DClass.IN));
+    assertEquals(nkeC, kc.find(Name.fromString("c."), DClass.IN));
+  }
+
   @Test
   public void testTtlExpiration() throws TextParseException, InterruptedException {
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 1);
     kc.store(nkeA);
     Thread.sleep(1100);
@@ -58,7 +78,7 @@ public class TestKeyCache {
   public void testTtlNoLongerThanMaxTtl() throws TextParseException, InterruptedException {
     Properties p = new Properties();
     p.put(KeyCache.MAX_TTL_CONFIG, "1");
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     kc.init(p);
     KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
     kc.store(nkeA);
@@ -69,7 +89,7 @@ public class TestKeyCache {
 
   @Test
   public void testPositiveEntryExactMatch() throws TextParseException {
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a.a."), DClass.IN, 60);
     KeyEntry nkeB = KeyEntry.newNullKeyEntry(Name.fromString("a.b."), DClass.IN, 60);
     kc.store(nkeA);
@@ -80,7 +100,7 @@ public class TestKeyCache {
 
   @Test
   public void testPositiveEntryEncloserMatch() throws TextParseException {
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
     KeyEntry nkeA = KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60);
     KeyEntry nkeB = KeyEntry.newNullKeyEntry(Name.fromString("b."), DClass.IN, 60);
     kc.store(nkeA);
@@ -89,9 +109,19 @@ public class TestKeyCache {
     assertEquals(nkeA, fromCache);
   }
 
+  @Test
+  public void testBadEntry() throws TextParseException {
+    KeyCache kc = new InMemoryKeyCache();
+    KeyEntry bad = KeyEntry.newBadKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    kc.store(bad);
+    KeyEntry fromCache = kc.find(Name.fromString("www.a."), DClass.IN);
+    assertEquals(bad, fromCache);
+    assertTrue(fromCache.isBad());
+  }
+
   @Test
   public void testCacheOnlySecureDNSKEYs() throws TextParseException {
-    KeyCache kc = new KeyCache();
+    KeyCache kc = new InMemoryKeyCache();
 
     DNSKEYRecord rA =
         new DNSKEYRecord(Name.fromString("a."), DClass.IN, 60, 0, 0, 0, new byte[] {0});
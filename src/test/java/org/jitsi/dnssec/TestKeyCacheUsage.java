@@ -12,12 +12,24 @@ package org.jitsi.dnssec;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import org.jitsi.dnssec.validator.DSCache;
+import org.jitsi.dnssec.validator.InMemoryKeyCache;
+import org.jitsi.dnssec.validator.KeyCache;
+import org.jitsi.dnssec.validator.KeyEntry;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.jitsi.dnssec.validator.ZoneCutCache;
 import org.junit.jupiter.api.Test;
 import org.xbill.DNS.Flags;
 import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
 import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Type;
 
 public class TestKeyCacheUsage extends TestBase {
 
@@ -36,4 +48,161 @@ public class TestKeyCacheUsage extends TestBase {
     assertEquals(localhost, firstA(response));
     assertEquals("insecure.ds.nsec", getReason(response));
   }
+
+  @Test
+  public void testInsecureDelegationIsCached() throws IOException {
+    Properties config = new Properties();
+    config.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "0");
+    resolver.init(config);
+    Message response = resolver.send(createMessage("www.unsigned.ingotronic.ch./A"));
+    assertEquals("insecure.ds.nsec", getReason(response));
+    assertEquals(1, resolver.getInsecureDelegationCache().size());
+
+    // only the answer is available now, the delegation must be known to be insecure
+    Message answer = get(Name.fromString("www.unsigned.ingotronic.ch."), Type.A);
+    clear();
+    add("www.unsigned.ingotronic.ch./A", answer, false);
+    response = resolver.send(createMessage("www.unsigned.ingotronic.ch./A"));
+    assertFalse(response.getHeader().getFlag(Flags.AD), "AD flag must not be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+    assertEquals(localhost, firstA(response));
+    assertEquals("insecure.ds.nsec", getReason(response));
+  }
+
+  private ValidatingResolver countingResolver(CountingResolver head) throws IOException {
+    return countingResolver(head, new InMemoryKeyCache());
+  }
+
+  private ValidatingResolver countingResolver(CountingResolver head, KeyCache keyCache)
+      throws IOException {
+    ValidatingResolver counting = newResolver(head, keyCache);
+    counting.setExecutor(Runnable::run);
+    return counting;
+  }
+
+  @Test
+  public void testKeySearchResumesAtCachedAncestor() throws IOException {
+    CountingResolver head = new CountingResolver();
+    ValidatingResolver counting = countingResolver(head);
+    Message response = counting.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+
+    // the key of ingotronic.ch. is cached, only the links below it are fetched
+    response = counting.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(1, head.count("./DNSKEY"));
+    assertEquals(1, head.count("ch./DS"));
+    assertEquals(1, head.count("ingotronic.ch./DNSKEY"));
+    assertEquals(1, head.count("nsec3.ingotronic.ch./DS"));
+    assertEquals(1, head.count("nsec3.ingotronic.ch./DNSKEY"));
+  }
+
+  @Test
+  public void testExpiredKeyIsFetchedWithCachedDs() throws IOException {
+    // a key cache that lost the key of ingotronic.ch., e.g. because it expired
+    Name zone = Name.fromString("ingotronic.ch.");
+    KeyCache keyCache =
+        new InMemoryKeyCache() {
+          @Override
+          public void store(KeyEntry ke) {
+            if (!ke.getName().equals(zone)) {
+              super.store(ke);
+            }
+          }
+        };
+    CountingResolver head = new CountingResolver();
+    ValidatingResolver counting = countingResolver(head, keyCache);
+    Message response = counting.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    int dnskeyQueries = head.count("ingotronic.ch./DNSKEY");
+
+    // only the DNSKEY query is sent again, the DS comes from the cache
+    response = counting.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(1, head.count("ingotronic.ch./DS"));
+    assertEquals(2 * dnskeyQueries, head.count("ingotronic.ch./DNSKEY"));
+
+    // the DS RRsets of ch. and ingotronic.ch.
+    assertEquals(2, counting.getDSCache().size());
+  }
+
+  @Test
+  public void testDsOfSignerIsSentAhead() throws IOException {
+    // a key cache that lost the key of nsec3.ingotronic.ch.
+    Name zone = Name.fromString("nsec3.ingotronic.ch.");
+    KeyCache keyCache =
+        new InMemoryKeyCache() {
+          @Override
+          public void store(KeyEntry ke) {
+            if (!ke.getName().equals(zone)) {
+              super.store(ke);
+            }
+          }
+        };
+    CountingResolver head = new CountingResolver();
+    ValidatingResolver counting = countingResolver(head, keyCache);
+    Properties config = new Properties();
+    config.put(DSCache.MAX_CACHE_SIZE_CONFIG, "0");
+    config.put(ZoneCutCache.MAX_CACHE_SIZE_CONFIG, "0");
+    counting.init(config);
+    Message response = counting.send(createMessage("9.nsec3.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    int dsQueries = head.count("nsec3.ingotronic.ch./DS");
+    int dnskeyQueries = head.count("nsec3.ingotronic.ch./DNSKEY");
+
+    // the DS of the signer sub.nsec3.ingotronic.ch. is sent ahead, the search still validates the
+    // DS and DNSKEY of nsec3.ingotronic.ch. before it uses the response
+    response = counting.send(createMessage("a.sub.nsec3.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NXDOMAIN, response.getRcode());
+    assertEquals(dsQueries + 1, head.count("nsec3.ingotronic.ch./DS"));
+    assertEquals(dnskeyQueries + 1, head.count("nsec3.ingotronic.ch./DNSKEY"));
+    assertEquals(1, head.count("sub.nsec3.ingotronic.ch./DS"));
+    assertEquals(1, head.count("sub.nsec3.ingotronic.ch./DNSKEY"));
+    List<String> queries = head.queries();
+    assertTrue(
+        queries.indexOf("sub.nsec3.ingotronic.ch./DS")
+            < queries.lastIndexOf("nsec3.ingotronic.ch./DNSKEY"));
+  }
+
+  @Test
+  public void testKeyIsRefreshedAheadOfExpiration() throws IOException {
+    CountingResolver head = new CountingResolver();
+    ValidatingResolver refreshing = countingResolver(head);
+    Properties config = new Properties();
+    config.put(ValidatingResolver.KEY_REFRESH_AHEAD_CONFIG, "1");
+    refreshing.init(config);
+
+    // the answer and the NS RRset are signed by ingotronic.ch., the key is hit once after the fetch
+    Message response = refreshing.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(1, head.count("ingotronic.ch./DNSKEY"));
+
+    // the whole lifetime is within the refresh window, the key is used often enough now and fetched
+    // again while the cached key is used
+    response = refreshing.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(1, head.count("./DNSKEY"));
+    assertEquals(1, head.count("ch./DNSKEY"));
+    assertEquals(1, head.count("ingotronic.ch./DS"));
+    assertEquals(2, head.count("ingotronic.ch./DNSKEY"));
+
+    // a key is refreshed only once within the refresh interval
+    for (int i = 0; i < 3; i++) {
+      response = refreshing.send(createMessage("www.ingotronic.ch./A"));
+      assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    }
+
+    assertEquals(2, head.count("ingotronic.ch./DNSKEY"));
+  }
+
+  @Test
+  public void testRefreshAheadOutOfRangeIsRejected() throws IOException {
+    for (String value : new String[] {"-0.1", "1.5", "NaN"}) {
+      Properties config = new Properties();
+      config.put(ValidatingResolver.KEY_REFRESH_AHEAD_CONFIG, value);
+      assertThrows(IllegalArgumentException.class, () -> resolver.init(config));
+    }
+  }
 }
@@ -0,0 +1,80 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+
+public class TestKeyLookupSharing extends TestBase {
+  @Test
+  public void testConcurrentLookupsShareKeyFetch() throws Exception {
+    CountingResolver head = new CountingResolver();
+    CompletableFuture<Void> rootKeyGate = head.gate("./DNSKEY");
+    ValidatingResolver shared = newResolver(head);
+
+    // continue on the thread that completes a response to see the queries right away
+    shared.setExecutor(Runnable::run);
+
+    // the key lookup of the first query waits for the root DNSKEY, the second must join it
+    CompletableFuture<Message> first =
+        shared.sendAsync(createMessage("www.ingotronic.ch./A")).toCompletableFuture();
+    CompletableFuture<Message> second =
+        shared.sendAsync(createMessage("www.ingotronic.ch./MX")).toCompletableFuture();
+    assertEquals(1, head.count("./DNSKEY"));
+
+    rootKeyGate.complete(null);
+    assertTrue(first.get().getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertTrue(second.get().getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(1, head.count("www.ingotronic.ch./A"));
+    assertEquals(1, head.count("www.ingotronic.ch./MX"));
+    assertEquals(1, head.count("./DNSKEY"));
+    assertEquals(1, head.count("ingotronic.ch./DS"));
+    assertEquals(1, head.count("ingotronic.ch./DNSKEY"));
+  }
+
+  @Test
+  public void testIdenticalConcurrentQueriesAreSentOnce() throws Exception {
+    CountingResolver head = new CountingResolver();
+    CompletableFuture<Void> answerGate = head.gate("www.ingotronic.ch./A");
+    ValidatingResolver shared = newResolver(head);
+
+    // continue on the thread that completes a response to see the queries right away
+    shared.setExecutor(Runnable::run);
+
+    // the second query arrives while the first one waits for its response
+    Message firstQuery = createMessage("www.ingotronic.ch./A");
+    Message secondQuery = createMessage("www.ingotronic.ch./A");
+    CompletableFuture<Message> first = shared.sendAsync(firstQuery).toCompletableFuture();
+    CompletableFuture<Message> second = shared.sendAsync(secondQuery).toCompletableFuture();
+    assertEquals(1, head.count("www.ingotronic.ch./A"));
+
+    answerGate.complete(null);
+    assertTrue(first.get().getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertTrue(second.get().getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(firstQuery.getHeader().getID(), first.get().getHeader().getID());
+    assertEquals(secondQuery.getHeader().getID(), second.get().getHeader().getID());
+    assertNotSame(first.get(), second.get());
+    assertEquals(1, head.count("www.ingotronic.ch./A"));
+    assertEquals(1, head.count("ingotronic.ch./DNSKEY"));
+
+    // a query after the response is sent again
+    Message response = shared.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(2, head.count("www.ingotronic.ch./A"));
+  }
+}
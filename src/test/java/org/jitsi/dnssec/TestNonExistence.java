@@ -14,8 +14,16 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 import org.xbill.DNS.Flags;
 import org.xbill.DNS.Message;
@@ -39,6 +47,34 @@ public class TestNonExistence extends TestBase {
     assertNull(getReason(response));
   }
 
+  @Test
+  public void testValidationRunsOnExecutor() throws IOException {
+    // the clock is read for every verification, but also when looking for a cached response
+    Instant now = resolverClock.instant();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    when(resolverClock.instant())
+        .thenAnswer(
+            invocation -> {
+              if (Arrays.stream(Thread.currentThread().getStackTrace())
+                  .noneMatch(e -> e.getMethodName().equals("getCachedResponse"))) {
+                threads.add(Thread.currentThread().getName());
+              }
+
+              return now;
+            });
+
+    ExecutorService pool = Executors.newSingleThreadExecutor(r -> new Thread(r, "validation"));
+    try {
+      resolver.setExecutor(pool);
+      Message response = resolver.send(createMessage("gibtsnicht.ingotronic.ch./A"));
+      assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+      assertEquals(Rcode.NXDOMAIN, response.getRcode());
+      assertEquals(Collections.singleton("validation"), threads);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test
   public void testSingleLabelABelowSignedNsec3() throws IOException {
     Message response = resolver.send(createMessage("gibtsnicht.nsec3.ingotronic.ch./A"));
@@ -0,0 +1,177 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Properties;
+import org.jitsi.dnssec.validator.KeyCache;
+import org.jitsi.dnssec.validator.KeyEntry;
+import org.jitsi.dnssec.validator.OffHeapKeyCache;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC.Algorithm;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+public class TestOffHeapKeyCache {
+  private static KeyEntry goodEntry(String name, int keySize) throws TextParseException {
+    Name n = Name.fromString(name);
+    SRRset set = new SRRset();
+    set.addRR(new DNSKEYRecord(n, DClass.IN, 60, 257, 3, Algorithm.RSASHA256, new byte[keySize]));
+    set.addRR(
+        new RRSIGRecord(
+            n,
+            DClass.IN,
+            60,
+            Type.DNSKEY,
+            Algorithm.RSASHA256,
+            60,
+            Instant.ofEpochSecond(2000000000),
+            Instant.ofEpochSecond(1000000000),
+            4711,
+            n,
+            new byte[] {1, 2, 3}));
+    set.setSecurityStatus(SecurityStatus.SECURE);
+    return KeyEntry.newKeyEntry(set);
+  }
+
+  @Test
+  public void testNullPropertiesDontFail() {
+    KeyCache kc = new OffHeapKeyCache();
+    kc.init(null);
+  }
+
+  @Test
+  public void testGoodEntryRoundTrip() throws TextParseException {
+    KeyCache kc = new OffHeapKeyCache();
+    KeyEntry ke = goodEntry("a.", 64);
+    kc.store(ke);
+
+    KeyEntry fromCache = kc.find(Name.fromString("www.a."), DClass.IN);
+    assertNotNull(fromCache);
+    assertTrue(fromCache.isGood());
+    assertEquals(ke.getName(), fromCache.getName());
+    assertEquals(ke.first(), fromCache.first());
+    assertEquals(ke.sigs(), fromCache.sigs());
+  }
+
+  @Test
+  public void testNullEntry() throws TextParseException {
+    KeyCache kc = new OffHeapKeyCache();
+    kc.store(KeyEntry.newNullKeyEntry(Name.fromString("a."), DClass.IN, 60));
+    KeyEntry fromCache = kc.find(Name.fromString("a."), DClass.IN);
+    assertNotNull(fromCache);
+    assertTrue(fromCache.isNull());
+    assertNull(kc.find(Name.fromString("a."), DClass.CH));
+  }
+
+  @Test
+  public void testBadEntry() throws TextParseException {
+    KeyCache kc = new OffHeapKeyCache();
+    KeyEntry bad = KeyEntry.newBadKeyEntry(Name.fromString("a."), DClass.IN, 60);
+    kc.store(bad);
+    KeyEntry fromCache = kc.find(Name.fromString("a."), DClass.IN);
+    assertNotNull(fromCache);
+    assertTrue(fromCache.isBad());
+  }
+
+  @Test
+  public void testMaxCacheSize() throws TextParseException {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_CACHE_SIZE_CONFIG, "1");
+    KeyCache kc = new OffHeapKeyCache();
+    kc.init(p);
+    kc.store(goodEntry("a.", 64));
+    kc.store(goodEntry("b.", 64));
+    assertNull(kc.find(Name.fromString("a."), DClass.IN));
+    assertNotNull(kc.find(Name.fromString("b."), DClass.IN));
+  }
+
+  @Test
+  public void testArenaReuseEvictsOldestEntries() throws TextParseException {
+    Properties p = new Properties();
+    p.put(OffHeapKeyCache.ARENA_SIZE_CONFIG, Integer.toString(16 * 1024));
+    KeyCache kc = new OffHeapKeyCache();
+    kc.init(p);
+
+    // each entry fills almost a whole 1k segment
+    for (int i = 0; i < 17; i++) {
+      kc.store(goodEntry("k" + i + ".", 800));
+    }
+
+    assertNull(kc.find(Name.fromString("k0."), DClass.IN));
+    assertNotNull(kc.find(Name.fromString("k1."), DClass.IN));
+    assertNotNull(kc.find(Name.fromString("k16."), DClass.IN));
+  }
+
+  @Test
+  public void testArenaSmallerThanSegmentsIsRejected() {
+    Properties p = new Properties();
+    p.put(OffHeapKeyCache.ARENA_SIZE_CONFIG, "15");
+    KeyCache kc = new OffHeapKeyCache();
+    assertThrows(IllegalArgumentException.class, () -> kc.init(p));
+  }
+
+  @Test
+  public void testDecodedEntryIsReused() throws TextParseException {
+    KeyCache kc = new OffHeapKeyCache();
+    kc.store(goodEntry("a.", 64));
+    KeyEntry first = kc.find(Name.fromString("a."), DClass.IN);
+    assertSame(first, kc.find(Name.fromString("a."), DClass.IN));
+
+    // a replaced entry is decoded again
+    kc.store(goodEntry("a.", 64));
+    assertNotSame(first, kc.find(Name.fromString("a."), DClass.IN));
+  }
+
+  @Test
+  public void testNoDecodedEntriesDecodesEveryLookup() throws TextParseException {
+    Properties p = new Properties();
+    p.put(OffHeapKeyCache.DECODED_SIZE_CONFIG, "0");
+    KeyCache kc = new OffHeapKeyCache();
+    kc.init(p);
+    kc.store(goodEntry("a.", 64));
+    KeyEntry first = kc.find(Name.fromString("a."), DClass.IN);
+    assertNotNull(first);
+    assertNotSame(first, kc.find(Name.fromString("a."), DClass.IN));
+  }
+
+  @Test
+  public void testTtlNoLongerThanMaxTtl() throws TextParseException, InterruptedException {
+    Properties p = new Properties();
+    p.put(KeyCache.MAX_TTL_CONFIG, "1");
+    KeyCache kc = new OffHeapKeyCache();
+    kc.init(p);
+    kc.store(goodEntry("a.", 64));
+    Thread.sleep(1100);
+    assertNull(kc.find(Name.fromString("a."), DClass.IN));
+  }
+
+  @Test
+  public void testCacheOnlySecureDNSKEYs() throws TextParseException {
+    KeyCache kc = new OffHeapKeyCache();
+    DNSKEYRecord r =
+        new DNSKEYRecord(Name.fromString("c."), DClass.IN, 60, 0, 0, 0, new byte[] {0});
+    kc.store(KeyEntry.newKeyEntry(new SRRset(r)));
+    assertNull(kc.find(Name.fromString("c."), DClass.IN));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import org.jitsi.dnssec.validator.ValidatingResolver;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+
+public class TestParallelKeyFetch extends TestBase {
+  @Test
+  public void testKeyQueriesAreSentAtOnce() throws Exception {
+    CountingResolver head = new CountingResolver();
+    CompletableFuture<Void> gate =
+        head.gate("./DNSKEY", "ch./DS", "ch./DNSKEY", "ingotronic.ch./DS", "ingotronic.ch./DNSKEY");
+    ValidatingResolver parallel = newResolver(head);
+
+    // continue on the thread that completes a response to see the queries right away
+    parallel.setExecutor(Runnable::run);
+    Properties config = new Properties();
+    config.put(ValidatingResolver.PARALLEL_KEY_FETCH_CONFIG, "true");
+    parallel.init(config);
+
+    // no key response has arrived yet, but the whole chain must already be requested
+    CompletableFuture<Message> result =
+        parallel.sendAsync(createMessage("www.ingotronic.ch./A")).toCompletableFuture();
+    assertEquals(1, head.count("./DNSKEY"));
+    assertEquals(1, head.count("ch./DS"));
+    assertEquals(1, head.count("ch./DNSKEY"));
+    assertEquals(1, head.count("ingotronic.ch./DS"));
+    assertEquals(1, head.count("ingotronic.ch./DNSKEY"));
+
+    gate.complete(null);
+    Message response = result.get();
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+    assertNull(getReason(response));
+  }
+}
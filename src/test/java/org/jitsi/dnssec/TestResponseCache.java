@@ -0,0 +1,93 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Properties;
+import org.jitsi.dnssec.validator.ResponseCache;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+
+public class TestResponseCache extends TestBase {
+  private void enableCache() throws IOException {
+    Properties config = new Properties();
+    config.put(ResponseCache.MAX_CACHE_SIZE_CONFIG, "10");
+    resolver.init(config);
+  }
+
+  @Test
+  public void testCachedResponseHasQueryId() throws IOException {
+    enableCache();
+    Message first = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(first.getHeader().getFlag(Flags.AD), "AD flag must be set");
+
+    // the head resolver would now fail the test, so the response must come from the cache
+    clear();
+    Message query = createMessage("www.ingotronic.ch./A");
+    Message response = resolver.send(query);
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+    assertEquals(localhost, firstA(response));
+    assertEquals(query.getHeader().getID(), response.getHeader().getID());
+    assertNotEquals(first.getHeader().getID(), response.getHeader().getID());
+  }
+
+  @Test
+  public void testCachedResponseTtlsAreLowered() throws IOException {
+    enableCache();
+    Message first = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(first.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    long ttl = first.getSection(Section.ANSWER).get(0).getTTL();
+
+    Instant now = resolverClock.instant();
+    when(resolverClock.instant()).thenReturn(now.plusSeconds(100));
+    Message response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    for (Record r : response.getSection(Section.ANSWER)) {
+      assertEquals(ttl - 100, r.getTTL());
+    }
+
+    assertEquals(localhost, firstA(response));
+    assertEquals(
+        first.getSection(Section.ANSWER).size(), response.getSection(Section.ANSWER).size());
+  }
+
+  @Test
+  public void testBogusResponseIsNotCached() throws IOException {
+    Message m = resolver.send(createMessage("www.ingotronic.ch./A"));
+    Message message = createMessage("www.ingotronic.ch./MX");
+    for (int i = 1; i < Section.ADDITIONAL; i++) {
+      for (Record r : m.getSection(i)) {
+        message.addRecord(r, i);
+      }
+    }
+
+    add("www.ingotronic.ch./A", message);
+    enableCache();
+    Message response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertEquals(Rcode.SERVFAIL, response.getRcode());
+
+    add("www.ingotronic.ch./A", m, false);
+    response = resolver.send(createMessage("www.ingotronic.ch./A"));
+    assertTrue(response.getHeader().getFlag(Flags.AD), "AD flag must be set");
+    assertEquals(Rcode.NOERROR, response.getRcode());
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class TestClockCache {
+  private static final long EXPIRATION = 10_000;
+
+  private static ClockCache<String, String> newFullCache() {
+    ClockCache<String, String> cache = new ClockCache<>(2);
+    cache.put("a", "A", EXPIRATION);
+    cache.put("b", "B", EXPIRATION);
+    return cache;
+  }
+
+  @Test
+  public void testHitEntryGetsSecondChance() {
+    ClockCache<String, String> cache = newFullCache();
+    assertEquals("A", cache.get("a", 0));
+    cache.put("c", "C", EXPIRATION);
+    assertEquals("A", cache.get("a", 0));
+    assertNull(cache.get("b", 0));
+  }
+
+  @Test
+  public void testPeekedEntryIsEvicted() {
+    ClockCache<String, String> cache = newFullCache();
+    ClockCache.Entry<String, String> entry = cache.peek("a", 0);
+    assertEquals("A", entry.getValue());
+    assertEquals(EXPIRATION, entry.getExpiration());
+    cache.put("c", "C", EXPIRATION);
+    assertNull(cache.peek("a", 0));
+    assertEquals("B", cache.get("b", 0));
+  }
+
+  @Test
+  public void testExpiredEntryIsNotPeeked() {
+    ClockCache<String, String> cache = newFullCache();
+    assertNull(cache.peek("a", EXPIRATION + 1));
+    assertNull(cache.peek("x", 0));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Properties;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DSRecord;
+import org.xbill.DNS.Name;
+
+public class TestDSCache {
+  private static final Name CHILD = Name.fromConstantString("child.example.");
+
+  private static DSCache newCache(int size) {
+    Properties config = new Properties();
+    config.put(DSCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(size));
+    DSCache cache = new DSCache();
+    cache.init(config);
+    return cache;
+  }
+
+  private static KeyEntry entry(SRRset set, SecurityStatus status) {
+    set.setSecurityStatus(status);
+    return KeyEntry.newKeyEntry(set);
+  }
+
+  @Test
+  public void testValidatedDsIsCachedForExactName() throws Exception {
+    DSCache cache = newCache(10);
+    KeyEntry ds =
+        entry(
+            new SRRset(new DSRecord(CHILD, DClass.IN, 60, 1, 8, 2, new byte[32])),
+            SecurityStatus.SECURE);
+    cache.store(ds);
+
+    assertEquals(ds, cache.get(CHILD, DClass.IN));
+    assertNull(cache.get(Name.fromString("www.child.example."), DClass.IN));
+    assertNull(cache.get(CHILD, DClass.CH));
+  }
+
+  @Test
+  public void testNullEntriesAreCached() throws Exception {
+    DSCache cache = newCache(10);
+    KeyEntry ke = KeyEntry.newNullKeyEntry(CHILD, DClass.IN, 60);
+    cache.store(ke);
+    assertEquals(ke, cache.get(CHILD, DClass.IN));
+  }
+
+  @Test
+  public void testOnlyValidatedDsAreCached() throws Exception {
+    DSCache cache = newCache(10);
+    cache.store(
+        entry(
+            new SRRset(new DSRecord(CHILD, DClass.IN, 60, 1, 8, 2, new byte[32])),
+            SecurityStatus.BOGUS));
+    cache.store(
+        entry(
+            new SRRset(new DNSKEYRecord(CHILD, DClass.IN, 60, 257, 3, 8, new byte[32])),
+            SecurityStatus.SECURE));
+    cache.store(KeyEntry.newBadKeyEntry(CHILD, DClass.IN, 60));
+    assertNull(cache.get(CHILD, DClass.IN));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testDisabledCacheStoresNothing() {
+    DSCache cache = newCache(0);
+    cache.store(KeyEntry.newNullKeyEntry(CHILD, DClass.IN, 60));
+    assertNull(cache.get(CHILD, DClass.IN));
+    assertEquals(0, cache.size());
+  }
+}
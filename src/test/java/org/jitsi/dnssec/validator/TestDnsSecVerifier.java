@@ -0,0 +1,250 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.InetAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Instant;
+import java.util.Properties;
+import org.jitsi.dnssec.SRRset;
+import org.jitsi.dnssec.SecurityStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.DNSKEYRecord;
+import org.xbill.DNS.DNSSEC;
+import org.xbill.DNS.DNSSEC.Algorithm;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.RRSIGRecord;
+import org.xbill.DNS.RRset;
+
+public class TestDnsSecVerifier {
+  private static final Name ZONE = Name.fromConstantString("example.com.");
+  private static final Instant INCEPTION = Instant.parse("2020-01-01T00:00:00Z");
+  private static final Instant EXPIRATION = Instant.parse("2020-02-01T00:00:00Z");
+  private static final Instant NOW = Instant.parse("2020-01-15T00:00:00Z");
+
+  private DNSKEYRecord key;
+  private RRset keyRrset;
+  private SRRset rrset;
+  private RRSIGRecord sig;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(1024);
+    KeyPair pair = generator.generateKeyPair();
+    key = new DNSKEYRecord(ZONE, DClass.IN, 3600, 256, 3, Algorithm.RSASHA256, pair.getPublic());
+    keyRrset = new RRset(key);
+
+    RRset a =
+        new RRset(
+            new ARecord(
+                new Name("www", ZONE), DClass.IN, 3600, InetAddress.getByName("192.0.2.1")));
+    sig = DNSSEC.sign(a, key, pair.getPrivate(), INCEPTION, EXPIRATION);
+    a.addRR(sig);
+    rrset = new SRRset(a);
+  }
+
+  private static DnsSecVerifier newVerifier(int cacheSize) {
+    Properties config = new Properties();
+    config.put(DnsSecVerifier.CACHE_SIZE_CONFIG, Integer.toString(cacheSize));
+    DnsSecVerifier verifier = new DnsSecVerifier();
+    verifier.init(config);
+    return verifier;
+  }
+
+  @Test
+  public void testRepeatedVerificationIsSecure() {
+    DnsSecVerifier verifier = newVerifier(10);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, key, NOW));
+  }
+
+  @Test
+  public void testVerificationWithoutCache() {
+    DnsSecVerifier verifier = newVerifier(0);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+  }
+
+  @Test
+  public void testCachedVerificationRespectsExpiration() {
+    DnsSecVerifier verifier = newVerifier(10);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+    assertEquals(SecurityStatus.BOGUS, verifier.verify(rrset, keyRrset, EXPIRATION.plusSeconds(1)));
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+  }
+
+  @Test
+  public void testCachedVerificationRespectsInception() {
+    DnsSecVerifier verifier = newVerifier(10);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+    assertEquals(SecurityStatus.BOGUS, verifier.verify(rrset, keyRrset, INCEPTION.minusSeconds(1)));
+  }
+
+  @Test
+  public void testChangedRRsetIsNotServedFromCache() throws Exception {
+    DnsSecVerifier verifier = newVerifier(10);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, keyRrset, NOW));
+
+    SRRset changed =
+        new SRRset(
+            new ARecord(
+                new Name("www", ZONE), DClass.IN, 3600, InetAddress.getByName("192.0.2.2")));
+    changed.addRR(sig);
+    assertEquals(SecurityStatus.BOGUS, verifier.verify(changed, keyRrset, NOW));
+  }
+
+  @Test
+  public void testKeyOfOtherOwnerIsNotServedFromCache() {
+    DnsSecVerifier verifier = newVerifier(10);
+    assertEquals(SecurityStatus.SECURE, verifier.verify(rrset, key, NOW));
+
+    // same key material, but not the signer of the RRSIG
+    DNSKEYRecord other =
+        new DNSKEYRecord(
+            Name.fromConstantString("example.net."),
+            DClass.IN,
+            key.getTTL(),
+            key.getFlags(),
+            key.getProtocol(),
+            key.getAlgorithm(),
+            key.getKey());
+    assertEquals(SecurityStatus.BOGUS, verifier.verify(rrset, other, NOW));
+  }
+
+  @Test
+  public void testEcdsaSignatures() throws Exception {
+    for (int alg : new int[] {Algorithm.ECDSAP256SHA256, Algorithm.ECDSAP384SHA384}) {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+      generator.initialize(alg == Algorithm.ECDSAP256SHA256 ? 256 : 384);
+      KeyPair pair = generator.generateKeyPair();
+      DNSKEYRecord ecKey = new DNSKEYRecord(ZONE, DClass.IN, 3600, 256, 3, alg, pair.getPublic());
+      RRset a = new RRset(rrset.first());
+      a.addRR(DNSSEC.sign(a, ecKey, pair.getPrivate(), INCEPTION, EXPIRATION));
+      SRRset signed = new SRRset(a);
+
+      DnsSecVerifier verifier = newVerifier(0);
+      assertEquals(SecurityStatus.SECURE, verifier.verify(signed, new RRset(ecKey), NOW));
+      assertEquals(SecurityStatus.SECURE, verifier.verify(signed, new RRset(ecKey), NOW));
+      assertEquals(SecurityStatus.BOGUS, verifier.verify(rrset, new RRset(ecKey), NOW));
+    }
+  }
+
+  @Test
+  public void testTamperedSignatureIsBogus() throws Exception {
+    byte[] signature = sig.getSignature().clone();
+    signature[signature.length - 1] ^= 1;
+    SRRset tampered = new SRRset(rrset.first());
+    tampered.addRR(
+        new RRSIGRecord(
+            sig.getName(),
+            sig.getDClass(),
+            sig.getTTL(),
+            sig.getTypeCovered(),
+            sig.getAlgorithm(),
+            sig.getOrigTTL(),
+            sig.getExpire(),
+            sig.getTimeSigned(),
+            sig.getFootprint(),
+            sig.getSigner(),
+            signature));
+    assertEquals(SecurityStatus.BOGUS, newVerifier(10).verify(tampered, keyRrset, NOW));
+  }
+
+  @Test
+  public void testKeyEntryIndexFindsSigningKey() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(1024);
+    SRRset keys = new SRRset();
+    keys.addRR(
+        new DNSKEYRecord(
+            ZONE,
+            DClass.IN,
+            3600,
+            257,
+            3,
+            Algorithm.RSASHA256,
+            generator.generateKeyPair().getPublic()));
+    keys.addRR(key);
+    KeyEntry ke = KeyEntry.newKeyEntry(keys);
+
+    assertEquals(1, ke.findKeys(key.getAlgorithm(), key.getFootprint()).length);
+    assertEquals(0, ke.findKeys(Algorithm.RSASHA512, key.getFootprint()).length);
+    assertEquals(SecurityStatus.SECURE, newVerifier(0).verify(rrset, ke, NOW));
+  }
+
+  @Test
+  public void testTamperedSignatureIsBogusForSingleKey() throws Exception {
+    byte[] signature = sig.getSignature().clone();
+    signature[0] ^= 1;
+    RRset tampered = new RRset(rrset.first());
+    tampered.addRR(
+        new RRSIGRecord(
+            sig.getName(),
+            sig.getDClass(),
+            sig.getTTL(),
+            sig.getTypeCovered(),
+            sig.getAlgorithm(),
+            sig.getOrigTTL(),
+            sig.getExpire(),
+            sig.getTimeSigned(),
+            sig.getFootprint(),
+            sig.getSigner(),
+            signature));
+    assertEquals(SecurityStatus.BOGUS, newVerifier(10).verify(tampered, key, NOW));
+  }
+
+  @Test
+  public void testEcdsaSignaturesWithLeadingZeroAndHighBit() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(256);
+    KeyPair pair = generator.generateKeyPair();
+    DNSKEYRecord ecKey =
+        new DNSKEYRecord(
+            ZONE, DClass.IN, 3600, 256, 3, Algorithm.ECDSAP256SHA256, pair.getPublic());
+    RRset keys = new RRset(ecKey);
+    DnsSecVerifier verifier = newVerifier(0);
+
+    // r and s are random, sign until both a leading zero byte and a high bit show up in each
+    boolean[] seen = new boolean[4];
+    for (int i = 0; i < 20000 && !(seen[0] && seen[1] && seen[2] && seen[3]); i++) {
+      RRset a = new RRset(rrset.first());
+      RRSIGRecord ecSig = DNSSEC.sign(a, ecKey, pair.getPrivate(), INCEPTION, EXPIRATION);
+      byte[] signature = ecSig.getSignature();
+      boolean[] current = {
+        signature[0] == 0,
+        (signature[0] & 0x80) != 0,
+        signature[32] == 0,
+        (signature[32] & 0x80) != 0,
+      };
+      if ((current[0] && !seen[0])
+          || (current[1] && !seen[1])
+          || (current[2] && !seen[2])
+          || (current[3] && !seen[3])) {
+        a.addRR(ecSig);
+        assertEquals(SecurityStatus.SECURE, verifier.verify(new SRRset(a), keys, NOW));
+        for (int j = 0; j < seen.length; j++) {
+          seen[j] |= current[j];
+        }
+      }
+    }
+
+    assertArrayEquals(new boolean[] {true, true, true, true}, seen);
+  }
+}
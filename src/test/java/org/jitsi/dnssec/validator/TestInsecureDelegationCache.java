@@ -0,0 +1,58 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+
+public class TestInsecureDelegationCache {
+  private static InsecureDelegationCache newCache(int size) {
+    Properties config = new Properties();
+    config.put(InsecureDelegationCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(size));
+    InsecureDelegationCache cache = new InsecureDelegationCache();
+    cache.init(config);
+    return cache;
+  }
+
+  @Test
+  public void testNamesBelowDelegationAreInsecure() throws Exception {
+    InsecureDelegationCache cache = newCache(10);
+    KeyEntry ke = KeyEntry.newNullKeyEntry(Name.fromString("unsigned.example."), DClass.IN, 60);
+    cache.store(ke);
+
+    assertEquals(ke, cache.find(Name.fromString("unsigned.example."), DClass.IN));
+    assertEquals(ke, cache.find(Name.fromString("a.b.unsigned.example."), DClass.IN));
+    assertNull(cache.find(Name.fromString("example."), DClass.IN));
+    assertNull(cache.find(Name.fromString("signed.example."), DClass.IN));
+    assertNull(cache.find(Name.fromString("a.unsigned.example."), DClass.CH));
+  }
+
+  @Test
+  public void testOnlyNullKeysAreStored() throws Exception {
+    InsecureDelegationCache cache = newCache(10);
+    cache.store(KeyEntry.newBadKeyEntry(Name.fromString("bad.example."), DClass.IN, 60));
+    assertNull(cache.find(Name.fromString("bad.example."), DClass.IN));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testDisabledCacheStoresNothing() throws Exception {
+    InsecureDelegationCache cache = newCache(0);
+    cache.store(KeyEntry.newNullKeyEntry(Name.fromString("unsigned.example."), DClass.IN, 60));
+    assertNull(cache.find(Name.fromString("unsigned.example."), DClass.IN));
+    assertEquals(0, cache.size());
+  }
+}
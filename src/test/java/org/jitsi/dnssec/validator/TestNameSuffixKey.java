@@ -0,0 +1,46 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+
+public class TestNameSuffixKey {
+  @Test
+  public void testKeysIgnoreCase() {
+    NameSuffixKey lower = new NameSuffixKey(Name.fromConstantString("www.example."), DClass.IN);
+    NameSuffixKey upper = new NameSuffixKey(Name.fromConstantString("WWW.Example."), DClass.IN);
+    assertEquals(lower, upper);
+    assertEquals(lower.hashCode(), upper.hashCode());
+    assertNotEquals(lower, new NameSuffixKey(Name.fromConstantString("www.example."), DClass.CH));
+  }
+
+  @Test
+  public void testParentsEqualTheKeysOfTheParentNames() {
+    NameSuffixKey key = new NameSuffixKey(Name.fromConstantString("a.b.example."), DClass.IN);
+    for (String parent : new String[] {"b.example.", "example.", "."}) {
+      assertTrue(key.toParent());
+      NameSuffixKey expected = new NameSuffixKey(Name.fromConstantString(parent), DClass.IN);
+      assertEquals(expected, key);
+      assertEquals(expected.hashCode(), key.hashCode());
+      assertEquals(Name.fromConstantString(parent), key.getName());
+    }
+
+    assertFalse(key.toParent());
+    assertEquals(Name.root, key.getName());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+
+public class TestNsec3HashCache {
+  private static final Name ZONE = Name.fromConstantString("example.");
+
+  private static NSEC3Record parameters(int iterations) {
+    return new NSEC3Record(
+        ZONE, DClass.IN, 0, 1, 0, iterations, new byte[] {1}, new byte[20], new int[0]);
+  }
+
+  private static NSEC3HashCache newCache(int size) {
+    Properties config = new Properties();
+    config.put(NSEC3HashCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(size));
+    NSEC3HashCache cache = new NSEC3HashCache();
+    cache.init(config);
+    return cache;
+  }
+
+  @Test
+  public void testHitsAndMissesAreCounted() throws Exception {
+    NSEC3HashCache cache = newCache(10);
+    Name name = Name.fromString("www.example.");
+    byte[] expected = parameters(10).hashName(name);
+
+    assertArrayEquals(expected, cache.hashName(parameters(10), name));
+    assertArrayEquals(expected, cache.hashName(parameters(10), Name.fromString("WWW.example.")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    // different parameters are a different hash
+    cache.hashName(parameters(11), name);
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testExpensiveHashesAreKeptLonger() throws Exception {
+    NSEC3HashCache cache = newCache(2);
+    Name expensive = Name.fromString("a.example.");
+    Name cheap = Name.fromString("b.example.");
+    cache.hashName(parameters(100), expensive);
+    cache.hashName(parameters(0), cheap);
+    cache.hashName(parameters(0), Name.fromString("c.example."));
+    assertEquals(3, cache.getMissCount());
+
+    cache.hashName(parameters(100), expensive);
+    assertEquals(1, cache.getHitCount());
+    cache.hashName(parameters(0), cheap);
+    assertEquals(4, cache.getMissCount());
+  }
+
+  @Test
+  public void testDisabledCacheCountsNothing() throws Exception {
+    NSEC3HashCache cache = newCache(0);
+    Name name = Name.fromString("www.example.");
+    assertArrayEquals(parameters(1).hashName(name), cache.hashName(parameters(1), name));
+    cache.hashName(parameters(1), name);
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jitsi.dnssec.SRRset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.NSEC3Record;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+import org.xbill.DNS.utils.base32;
+
+public class TestNsec3Index {
+  private static final Name ZONE = Name.fromConstantString("example.");
+  private static final base32 B32 = new base32(base32.Alphabet.BASE32HEX, false, false);
+  private static final ByteArrayComparator BAC = new ByteArrayComparator();
+
+  /** Existing names, sorted by their hash. */
+  private List<Name> names;
+
+  private NSEC3Record[] chain;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    names = new ArrayList<>();
+    for (String n : new String[] {"example.", "a.example.", "b.example.", "c.example."}) {
+      names.add(Name.fromString(n));
+    }
+
+    names.sort((a, b) -> BAC.compare(hash(a), hash(b)));
+    chain = new NSEC3Record[names.size()];
+    for (int i = 0; i < chain.length; i++) {
+      chain[i] = nsec3(hash(names.get(i)), hash(names.get((i + 1) % chain.length)));
+    }
+  }
+
+  private static byte[] hash(Name name) {
+    try {
+      return new NSEC3Record(ZONE, DClass.IN, 0, 1, 0, 1, new byte[] {1}, new byte[20], new int[0])
+          .hashName(name);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static NSEC3Record nsec3(byte[] owner, byte[] next) throws TextParseException {
+    return new NSEC3Record(
+        new Name(B32.toString(owner), ZONE),
+        DClass.IN,
+        0,
+        1,
+        0,
+        1,
+        new byte[] {1},
+        next,
+        new int[] {Type.A});
+  }
+
+  private static List<SRRset> sets(NSEC3Record... records) {
+    List<SRRset> result = new ArrayList<>();
+    for (NSEC3Record r : records) {
+      result.add(new SRRset(r));
+    }
+
+    return result;
+  }
+
+  @Test
+  public void testExistingNamesAreMatchedNotCovered() {
+    NSEC3Index index =
+        new NSEC3Index(sets(chain[2], chain[0], chain[3], chain[1]), ZONE, new NSEC3HashCache());
+    for (int i = 0; i < chain.length; i++) {
+      assertSame(chain[i], index.findMatching(names.get(i)));
+      assertNull(index.findCovering(names.get(i)));
+    }
+  }
+
+  @Test
+  public void testNonExistingNameIsCovered() throws TextParseException {
+    Name nx = Name.fromString("nx.example.");
+    byte[] h = hash(nx);
+
+    // the predecessor of the hash, or the last record that wraps around
+    NSEC3Record expected = chain[chain.length - 1];
+    for (int i = 0; i < chain.length; i++) {
+      if (BAC.compare(hash(names.get(i)), h) < 0) {
+        expected = chain[i];
+      }
+    }
+
+    NSEC3Index index =
+        new NSEC3Index(sets(chain[3], chain[1], chain[2], chain[0]), ZONE, new NSEC3HashCache());
+    assertNull(index.findMatching(nx));
+    assertSame(expected, index.findCovering(nx));
+  }
+
+  @Test
+  public void testOverlappingRecordsReturnFirstInResponse() throws TextParseException {
+    byte[] max = new byte[20];
+    Arrays.fill(max, (byte) 0xFF);
+    NSEC3Record wide = nsec3(hash(names.get(0)), max);
+    NSEC3Record narrow = nsec3(hash(names.get(1)), hash(names.get(3)));
+
+    assertSame(
+        wide,
+        new NSEC3Index(sets(wide, narrow), ZONE, new NSEC3HashCache()).findCovering(names.get(2)));
+    assertSame(
+        narrow,
+        new NSEC3Index(sets(narrow, wide), ZONE, new NSEC3HashCache()).findCovering(names.get(2)));
+  }
+
+  @Test
+  public void testRecordsOfOtherZonesAreIgnored() throws TextParseException {
+    NSEC3Index index = new NSEC3Index(sets(chain), Name.fromString("other."), new NSEC3HashCache());
+    assertNull(index.findMatching(names.get(0)));
+    assertNull(index.findCovering(Name.fromString("nx.example.")));
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * dnssecjava - a DNSSEC validating stub resolver for Java
+ * Copyright (c) 2013-2015 Ingo Bauersachs
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.jitsi.dnssec.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+
+public class TestZoneCutCache {
+  private static final Name NAME = Name.fromConstantString("www.example.");
+
+  private static ZoneCutCache newCache(int size) {
+    Properties config = new Properties();
+    config.put(ZoneCutCache.MAX_CACHE_SIZE_CONFIG, Integer.toString(size));
+    ZoneCutCache cache = new ZoneCutCache();
+    cache.init(config);
+    return cache;
+  }
+
+  @Test
+  public void testCutsAndNonCutsAreCached() {
+    ZoneCutCache cache = newCache(10);
+    assertNull(cache.isZoneCut(NAME, DClass.IN));
+    cache.store(NAME, DClass.IN, false, 60);
+    assertEquals(Boolean.FALSE, cache.isZoneCut(NAME, DClass.IN));
+    assertNull(cache.isZoneCut(NAME, DClass.CH));
+
+    // a new delegation replaces the proof that the name was not a cut
+    cache.store(NAME, DClass.IN, true, 60);
+    assertEquals(Boolean.TRUE, cache.isZoneCut(NAME, DClass.IN));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testEntriesWithoutTtlAreNotCached() {
+    ZoneCutCache cache = newCache(10);
+    cache.store(NAME, DClass.IN, false, 0);
+    assertNull(cache.isZoneCut(NAME, DClass.IN));
+  }
+
+  @Test
+  public void testDisabledCacheStoresNothing() {
+    ZoneCutCache cache = newCache(0);
+    cache.store(NAME, DClass.IN, false, 60);
+    assertNull(cache.isZoneCut(NAME, DClass.IN));
+    assertEquals(0, cache.size());
+  }
+}